@@ -2,19 +2,14 @@ package com.trae.loganalysis;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class LogAnalysisApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(LogAnalysisApplication.class, args);
     }
-    
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
 
-}
\ No newline at end of file
+}
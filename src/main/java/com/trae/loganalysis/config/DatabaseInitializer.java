@@ -10,6 +10,8 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 @Component
 public class DatabaseInitializer implements CommandLineRunner {
@@ -38,8 +40,12 @@ public class DatabaseInitializer implements CommandLineRunner {
             ResultSet analysisResultExists = metaData.getTables(null, null, "analysis_result", new String[]{"TABLE"});
             boolean hasAnalysisResult = analysisResultExists.next();
             
+            // 检查是否存在analysis_task表
+            ResultSet analysisTaskExists = metaData.getTables(null, null, "analysis_task", new String[]{"TABLE"});
+            boolean hasAnalysisTask = analysisTaskExists.next();
+            
             // 如果任何表不存在，执行schema.sql脚本
-            if (!hasUploadFile || !hasFileData || !hasAnalysisResult) {
+            if (!hasUploadFile || !hasFileData || !hasAnalysisResult || !hasAnalysisTask) {
                 System.out.println("Creating database tables...");
                 ClassPathResource resource = new ClassPathResource("schema.sql");
                 ScriptUtils.executeSqlScript(connection, resource);
@@ -47,6 +53,72 @@ public class DatabaseInitializer implements CommandLineRunner {
             } else {
                 System.out.println("All database tables already exist.");
             }
+
+            // 为旧版本数据库补充新增的列
+            ensureColumn(connection, "upload_file", "priority", "INTEGER DEFAULT 0");
+            ensureColumn(connection, "upload_file", "deadline_time", "INTEGER");
+            ensureColumn(connection, "upload_file", "batch_id", "INTEGER");
+            ensureColumn(connection, "upload_file", "prepare_time", "INTEGER");
+            ensureColumn(connection, "analysis_task", "lease_owner", "TEXT");
+            ensureColumn(connection, "analysis_task", "lease_token", "TEXT");
+            ensureColumn(connection, "analysis_task", "lease_expire_time", "INTEGER");
+            ensureColumn(connection, "analysis_task", "cluster_id", "TEXT");
+            ensureColumn(connection, "analysis_result", "cluster_id", "TEXT");
+            ensureColumn(connection, "analysis_result", "code_start_line", "INTEGER");
+            ensureColumn(connection, "analysis_result", "ai_status", "TEXT");
+            ensureColumn(connection, "analysis_result", "ai_attempts", "INTEGER DEFAULT 0");
+            ensureColumn(connection, "analysis_task", "sampled", "INTEGER DEFAULT 0");
+            ensureColumn(connection, "analysis_result", "sampled", "INTEGER DEFAULT 0");
+            ensureColumn(connection, "analysis_result", "export_code", "TEXT");
+            ensureColumn(connection, "analysis_result", "update_time", "INTEGER");
+            executeIgnoringErrors(connection, "CREATE INDEX IF NOT EXISTS idx_analysis_task_cluster ON analysis_task(file_id, cluster_id, status)");
+            executeIgnoringErrors(connection, "CREATE INDEX IF NOT EXISTS idx_analysis_result_ai_status ON analysis_result(ai_status, id)");
+            executeIgnoringErrors(connection, "CREATE INDEX IF NOT EXISTS idx_upload_file_batch_id ON upload_file(batch_id)");
+            executeIgnoringErrors(connection, "CREATE INDEX IF NOT EXISTS idx_file_data_file_row ON file_data(file_id, row_index)");
+            executeIgnoringErrors(connection, "CREATE TABLE IF NOT EXISTS analysis_batch (id INTEGER PRIMARY KEY, " +
+                    "status TEXT NOT NULL, file_count INTEGER NOT NULL, priority INTEGER, time_budget_seconds INTEGER, " +
+                    "create_time TIMESTAMP NOT NULL)");
+            executeIgnoringErrors(connection, "CREATE TABLE IF NOT EXISTS export_job (id INTEGER PRIMARY KEY, " +
+                    "file_id INTEGER NOT NULL, status TEXT NOT NULL, total_rows INTEGER, written_rows INTEGER, " +
+                    "file_path TEXT, error_message TEXT, create_time TIMESTAMP NOT NULL, finish_time TIMESTAMP)");
+            executeIgnoringErrors(connection, "CREATE INDEX IF NOT EXISTS idx_export_job_status ON export_job(status, finish_time)");
+            ensureColumn(connection, "export_job", "owner", "TEXT");
+            ensureColumn(connection, "export_job", "heartbeat_time", "INTEGER");
+            // 同一文件最多一个未结束的导出任务
+            executeIgnoringErrors(connection, "CREATE UNIQUE INDEX IF NOT EXISTS idx_export_job_active ON export_job(file_id) " +
+                    "WHERE status IN ('PENDING', 'RUNNING')");
+        }
+    }
+
+    /**
+     * 执行DDL语句，失败时仅输出提示，不影响启动
+     * @param connection 数据库连接
+     * @param sql DDL语句
+     */
+    private void executeIgnoringErrors(Connection connection, String sql) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            System.out.println("Failed to execute: " + sql + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 列不存在时通过ALTER TABLE ADD COLUMN补充
+     * @param connection 数据库连接
+     * @param table 表名
+     * @param column 列名
+     * @param definition 列定义
+     */
+    private void ensureColumn(Connection connection, String table, String column, String definition) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, null, table, column)) {
+            if (columns.next()) {
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            System.out.println("Added column " + table + "." + column);
         }
     }
 }
\ No newline at end of file
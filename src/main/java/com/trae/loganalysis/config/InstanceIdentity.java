@@ -0,0 +1,28 @@
+package com.trae.loganalysis.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * 当前实例ID：多个实例共享同一数据库时，作为分析任务租约和导出任务的持有者写入数据库。
+ * 配置了固定实例ID时，重启后可以识别并恢复本实例上次持有的任务
+ */
+@Component
+public class InstanceIdentity {
+
+    private final String id;
+
+    public InstanceIdentity(@Value("${file.analysis.instance-id:}") String instanceId) {
+        // 未配置实例ID时使用 pid@host 加随机后缀，保证同一台机器上的多个实例互不冲突
+        this.id = instanceId == null || instanceId.isEmpty()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8)
+                : instanceId;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
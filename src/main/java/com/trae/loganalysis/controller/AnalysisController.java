@@ -1,32 +1,48 @@
 package com.trae.loganalysis.controller;
 
+import com.trae.loganalysis.entity.AnalysisBatch;
 import com.trae.loganalysis.entity.AnalysisResult;
+import com.trae.loganalysis.model.BatchProgress;
+import com.trae.loganalysis.service.AnalysisBatchService;
 import com.trae.loganalysis.service.FileAnalysisService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/analysis")
 public class AnalysisController {
 
     private final FileAnalysisService fileAnalysisService;
+    private final AnalysisBatchService analysisBatchService;
 
-    public AnalysisController(FileAnalysisService fileAnalysisService) {
+    public AnalysisController(FileAnalysisService fileAnalysisService, AnalysisBatchService analysisBatchService) {
         this.fileAnalysisService = fileAnalysisService;
+        this.analysisBatchService = analysisBatchService;
     }
 
     /**
      * 开始分析文件
      * @param fileId 文件ID
+     * @param priority 分析优先级（可选），数值越大分得的并发份额越多
+     * @param sampleSize 抽样行数（可选），按错误签名分层抽样只分析部分数据行
+     * @param sampleRatio 抽样比例（可选），取值范围(0, 1]，与抽样行数二选一
+     * @param timeBudgetSeconds 文件的时间预算（可选，秒），超出后未完成的数据行记为超时，文件以部分结果完成
      * @return 分析结果
      */
     @PostMapping("/start/{fileId}")
-    public ResponseEntity<String> startAnalysis(@PathVariable Long fileId) {
+    public ResponseEntity<String> startAnalysis(@PathVariable Long fileId,
+                                                @RequestParam(value = "priority", required = false) Integer priority,
+                                                @RequestParam(value = "sampleSize", required = false) Integer sampleSize,
+                                                @RequestParam(value = "sampleRatio", required = false) Double sampleRatio,
+                                                @RequestParam(value = "timeBudgetSeconds", required = false) Long timeBudgetSeconds) {
         try {
-            fileAnalysisService.analyzeFile(fileId);
+            fileAnalysisService.analyzeFile(fileId, priority, sampleSize, sampleRatio, timeBudgetSeconds);
             return new ResponseEntity<>("Analysis started successfully", HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
@@ -37,6 +53,137 @@ public class AnalysisController {
         }
     }
 
+    /**
+     * 批量开始分析：按文件ID列表或上传时间选出待分析的文件，在全局并发和速率预算内统一调度
+     * @param fileIds 文件ID列表（可选），逗号分隔
+     * @param uploadedSince 只包含该时间及之后上传的文件（可选），格式 yyyy-MM-dd HH:mm:ss
+     * @param priority 分析优先级（可选）
+     * @param timeBudgetSeconds 每个文件的时间预算（可选，秒）
+     * @return 批量分析，包含批量ID和文件数
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<AnalysisBatch> startBatch(@RequestParam(value = "fileIds", required = false) List<Long> fileIds,
+                                                    @RequestParam(value = "uploadedSince", required = false)
+                                                    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date uploadedSince,
+                                                    @RequestParam(value = "priority", required = false) Integer priority,
+                                                    @RequestParam(value = "timeBudgetSeconds", required = false) Long timeBudgetSeconds) {
+        try {
+            AnalysisBatch batch = analysisBatchService.createBatch(fileIds, uploadedSince, priority, timeBudgetSeconds);
+            return new ResponseEntity<>(batch, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 获取批量分析进度
+     * @param batchId 批量分析ID
+     * @return 按状态汇总的文件和任务数量
+     */
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<BatchProgress> getBatchProgress(@PathVariable Long batchId) {
+        try {
+            return new ResponseEntity<>(analysisBatchService.getBatchProgress(batchId), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 取消文件分析，正在执行的任务被中断
+     * @param fileId 文件ID
+     * @return 操作结果
+     */
+    @PostMapping("/cancel/{fileId}")
+    public ResponseEntity<String> cancelAnalysis(@PathVariable Long fileId) {
+        try {
+            fileAnalysisService.cancelAnalysis(fileId);
+            return new ResponseEntity<>("Analysis cancelled successfully", HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 暂停文件分析
+     * @param fileId 文件ID
+     * @return 操作结果
+     */
+    @PostMapping("/pause/{fileId}")
+    public ResponseEntity<String> pauseAnalysis(@PathVariable Long fileId) {
+        try {
+            fileAnalysisService.pauseAnalysis(fileId);
+            return new ResponseEntity<>("Analysis paused successfully", HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 恢复已暂停的文件分析
+     * @param fileId 文件ID
+     * @return 操作结果
+     */
+    @PostMapping("/resume/{fileId}")
+    public ResponseEntity<String> resumeAnalysis(@PathVariable Long fileId) {
+        try {
+            fileAnalysisService.resumeAnalysis(fileId);
+            return new ResponseEntity<>("Analysis resumed successfully", HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 将抽样分析扩展为全量分析，已抽样的数据行不再重复分析
+     * @param fileId 文件ID
+     * @return 操作结果
+     */
+    @PostMapping("/expand/{fileId}")
+    public ResponseEntity<String> expandAnalysis(@PathVariable Long fileId) {
+        try {
+            fileAnalysisService.expandAnalysis(fileId);
+            return new ResponseEntity<>("Analysis expanded successfully", HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 获取文件分析任务进度
+     * @param fileId 文件ID
+     * @return 各状态的任务数
+     */
+    @GetMapping("/tasks/{fileId}")
+    public ResponseEntity<Map<String, Long>> getTaskProgress(@PathVariable Long fileId) {
+        try {
+            Map<String, Long> counts = fileAnalysisService.getTaskStatusCounts(fileId);
+            return new ResponseEntity<>(counts, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * 获取文件分析结果
      * @param fileId 文件ID
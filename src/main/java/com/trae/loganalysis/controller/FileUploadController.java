@@ -2,6 +2,9 @@ package com.trae.loganalysis.controller;
 
 import com.trae.loganalysis.entity.UploadFile;
 import com.trae.loganalysis.service.FileUploadService;
+import com.trae.loganalysis.util.FileDownloadUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -9,6 +12,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -17,9 +23,11 @@ public class FileUploadController {
 
     private static final Logger logger = LoggerFactory.getLogger(FileUploadController.class);
     private final FileUploadService fileUploadService;
+    private final FileDownloadUtil fileDownloadUtil;
 
-    public FileUploadController(FileUploadService fileUploadService) {
+    public FileUploadController(FileUploadService fileUploadService, FileDownloadUtil fileDownloadUtil) {
         this.fileUploadService = fileUploadService;
+        this.fileDownloadUtil = fileDownloadUtil;
     }
 
     /**
@@ -88,4 +96,27 @@ public class FileUploadController {
         return new ResponseEntity<>(file, HttpStatus.OK);
     }
 
-}
\ No newline at end of file
+    /**
+     * 下载上传的原始文件，支持Range和If-Range
+     * @param id 文件ID
+     */
+    @GetMapping("/{id}/download")
+    public void downloadUploadFile(@PathVariable Long id, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        logger.info("下载上传文件，文件ID: {}", id);
+        UploadFile uploadFile = fileUploadService.getUploadFileById(id);
+        File file = uploadFile == null ? null : new File(uploadFile.getFilePath());
+        if (file == null || !file.isFile()) {
+            logger.warn("未找到文件，文件ID: {}", id);
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        try {
+            fileDownloadUtil.writeFile(request, response, file, uploadFile.getFileName(), null);
+        } catch (FileNotFoundException e) {
+            logger.warn("文件已被删除，文件ID: {}", id);
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+        }
+    }
+
+}
@@ -1,18 +1,29 @@
 package com.trae.loganalysis.controller;
 
+import com.trae.loganalysis.entity.ExportJob;
+import com.trae.loganalysis.model.ExportFile;
+import com.trae.loganalysis.model.ExportFormat;
+import com.trae.loganalysis.service.ExportJobService;
 import com.trae.loganalysis.service.ResultExportService;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import com.trae.loganalysis.util.FileDownloadUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 
 @RestController
@@ -20,36 +31,165 @@ import java.io.IOException;
 public class ResultController {
 
     private final ResultExportService resultExportService;
+    private final ExportJobService exportJobService;
+    private final FileDownloadUtil fileDownloadUtil;
 
-    public ResultController(ResultExportService resultExportService) {
+    public ResultController(ResultExportService resultExportService,
+                            ExportJobService exportJobService,
+                            FileDownloadUtil fileDownloadUtil) {
         this.resultExportService = resultExportService;
+        this.exportJobService = exportJobService;
+        this.fileDownloadUtil = fileDownloadUtil;
     }
 
     /**
-     * 导出分析结果
+     * 导出分析结果。响应携带结果版本对应的ETag，请求的If-None-Match与当前版本一致时返回304；
+     * 支持Range和If-Range，中断的下载可以从断点继续
      * @param fileId 文件ID
-     * @return 导出的Excel文件
+     * @param format 导出格式：xlsx（默认）、csv、ndjson
+     * @param gzip 是否gzip压缩
+     * @param ifNoneMatch 客户端缓存的ETag
      */
     @GetMapping("/export/{fileId}")
-    public ResponseEntity<Resource> exportResults(@PathVariable Long fileId) {
+    public void exportResults(@PathVariable Long fileId,
+                              @RequestParam(value = "format", defaultValue = "xlsx") String format,
+                              @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
+            ExportFormat exportFormat = ExportFormat.fromParam(format);
+
+            // 结果未变化时不再生成导出文件
+            if (ifNoneMatch != null) {
+                String eTag = resultExportService.getExportETag(fileId, exportFormat, gzip);
+                if (matchesETag(ifNoneMatch, eTag)) {
+                    response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                    response.setHeader(HttpHeaders.ETAG, eTag);
+                    return;
+                }
+            }
+
             // 导出结果到文件
-            String exportFilePath = resultExportService.exportAnalysisResults(fileId);
-            File file = new File(exportFilePath);
-            Resource resource = new FileSystemResource(file);
+            ExportFile exportFile = resultExportService.exportAnalysisResults(fileId, exportFormat, gzip, written -> { });
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+            fileDownloadUtil.writeFile(request, response, new File(exportFile.getFilePath()),
+                    "analysis_result_" + fileId + "." + ResultExportService.exportSuffix(exportFormat, gzip),
+                    exportFile.getETag());
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+        } catch (FileNotFoundException e) {
+            // 导出文件在返回后被删除，不返回ETag，客户端重试时重新生成
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        } catch (IOException e) {
+            if (!response.isCommitted()) {
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                return;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 流式导出分析结果：边从数据库分页读取边写出到响应，不在服务器上生成导出文件。
+     * CSV和NDJSON边读边写，适合大文件；xlsx格式的工作簿在全部行写完后才开始输出，
+     * 大文件的xlsx导出应使用/export/{fileId}或异步导出任务
+     * @param fileId 文件ID
+     * @param format 导出格式：xlsx（默认）、csv、ndjson
+     * @param gzip 是否gzip压缩
+     * @return 导出内容
+     */
+    @GetMapping("/export/{fileId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamResults(@PathVariable Long fileId,
+                                                               @RequestParam(value = "format", defaultValue = "xlsx") String format,
+                                                               @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromParam(format);
+            resultExportService.checkExportable(fileId);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
-            // 设置响应头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "analysis_result_" + fileId + ".xlsx");
-            headers.setContentLength(file.length());
+        // 长度未知，以分块方式传输
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment",
+                "analysis_result_" + fileId + "." + ResultExportService.exportSuffix(exportFormat, gzip));
+        StreamingResponseBody body = out -> resultExportService.writeAnalysisResults(fileId, out, exportFormat, gzip);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
 
-            return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+    /**
+     * 提交异步导出任务，适用于导出时间超过代理超时的大文件
+     * @param fileId 文件ID
+     * @return 导出任务
+     */
+    @PostMapping("/export/{fileId}/job")
+    public ResponseEntity<ExportJob> submitExportJob(@PathVariable Long fileId) {
+        try {
+            return new ResponseEntity<>(exportJobService.submit(fileId), HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        } catch (IOException e) {
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * 查询异步导出任务的状态和进度
+     * @param jobId 导出任务ID
+     * @return 导出任务
+     */
+    @GetMapping("/export-jobs/{jobId}")
+    public ResponseEntity<ExportJob> getExportJob(@PathVariable Long jobId) {
+        try {
+            return new ResponseEntity<>(exportJobService.getJob(jobId), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 下载异步导出任务生成的导出文件，支持Range和If-Range
+     * @param jobId 导出任务ID
+     */
+    @GetMapping("/export-jobs/{jobId}/download")
+    public void downloadExportJob(@PathVariable Long jobId,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            ExportJob job = exportJobService.getJob(jobId);
+            File file = exportJobService.getJobFile(jobId);
+            fileDownloadUtil.writeFile(request, response, file, "analysis_result_" + job.getFileId() + ".xlsx", null);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+        } catch (IllegalStateException e) {
+            // 任务未完成、失败或导出文件已过期
+            response.setStatus(HttpStatus.CONFLICT.value());
+        } catch (FileNotFoundException e) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+        }
+    }
+
+    /**
+     * 判断If-None-Match是否匹配当前ETag，支持多个ETag、弱校验前缀和通配符
+     * @param ifNoneMatch 请求头If-None-Match的值
+     * @param eTag 当前ETag
+     * @return 是否匹配
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || eTag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,86 @@
+package com.trae.loganalysis.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * 批量分析，一次启动多个文件的分析，各文件通过upload_file.batch_id关联
+ */
+@Entity
+@Table(name = "analysis_batch")
+public class AnalysisBatch {
+
+    public static final String STATUS_PREPARING = "PREPARING";
+    public static final String STATUS_STARTED = "STARTED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // PREPARING表示仍在逐个创建文件的分析任务，STARTED表示所有文件都已启动
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "file_count", nullable = false)
+    private Integer fileCount;
+
+    @Column(name = "priority")
+    private Integer priority;
+
+    // 每个文件的时间预算（秒），为空时使用配置的默认值
+    @Column(name = "time_budget_seconds")
+    private Long timeBudgetSeconds;
+
+    @Column(name = "create_time", nullable = false)
+    private Date createTime;
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getFileCount() {
+        return fileCount;
+    }
+
+    public void setFileCount(Integer fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    public Long getTimeBudgetSeconds() {
+        return timeBudgetSeconds;
+    }
+
+    public void setTimeBudgetSeconds(Long timeBudgetSeconds) {
+        this.timeBudgetSeconds = timeBudgetSeconds;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -7,6 +7,11 @@ import java.util.Date;
 @Table(name = "analysis_result")
 public class AnalysisResult {
 
+    // AI建议状态：已生成、待生成（按需生成模式，包括生成失败待重试）、生成失败（重试次数已用尽）
+    public static final String AI_STATUS_DONE = "DONE";
+    public static final String AI_STATUS_PENDING = "PENDING";
+    public static final String AI_STATUS_FAILED = "FAILED";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -31,6 +36,10 @@ public class AnalysisResult {
     
     @Column(name = "code")
     private String code;
+
+    // 预先格式化并截断的导出源码，导出时直接使用
+    @Column(name = "export_code", columnDefinition = "TEXT")
+    private String exportCode;
     
     @Column(name = "class_name", columnDefinition = "TEXT")
     private String className;
@@ -40,6 +49,29 @@ public class AnalysisResult {
     
     @Column(name = "method_name", columnDefinition = "TEXT")
     private String methodName;
+
+    // 错误签名聚类ID，同一聚类的数据行共享代表行的分析结果
+    @Column(name = "cluster_id")
+    private String clusterId;
+
+    // 方法源码第一行在源文件中的行号，用于按需生成AI建议时定位报错行
+    @Column(name = "code_start_line")
+    private Integer codeStartLine;
+
+    @Column(name = "ai_status")
+    private String aiStatus;
+
+    // 按需生成AI建议失败的次数
+    @Column(name = "ai_attempts")
+    private Integer aiAttempts;
+
+    // 是否为抽样分析产生的结果，扩展到全量分析时不会重复分析
+    @Column(name = "sampled")
+    private Boolean sampled;
+
+    // 最后写入时间（毫秒时间戳），用于计算导出缓存的结果版本
+    @Column(name = "update_time")
+    private Long updateTime;
     
     // Getters and Setters
 
@@ -107,6 +139,14 @@ public class AnalysisResult {
         this.code = code;
     }
     
+    public String getExportCode() {
+        return exportCode;
+    }
+    
+    public void setExportCode(String exportCode) {
+        this.exportCode = exportCode;
+    }
+    
     public String getClassName() {
         return className;
     }
@@ -130,4 +170,52 @@ public class AnalysisResult {
     public void setMethodName(String methodName) {
         this.methodName = methodName;
     }
-}
\ No newline at end of file
+    
+    public String getClusterId() {
+        return clusterId;
+    }
+    
+    public void setClusterId(String clusterId) {
+        this.clusterId = clusterId;
+    }
+
+    public Integer getCodeStartLine() {
+        return codeStartLine;
+    }
+    
+    public void setCodeStartLine(Integer codeStartLine) {
+        this.codeStartLine = codeStartLine;
+    }
+    
+    public String getAiStatus() {
+        return aiStatus;
+    }
+    
+    public void setAiStatus(String aiStatus) {
+        this.aiStatus = aiStatus;
+    }
+
+    public Integer getAiAttempts() {
+        return aiAttempts;
+    }
+
+    public void setAiAttempts(Integer aiAttempts) {
+        this.aiAttempts = aiAttempts;
+    }
+    
+    public Boolean getSampled() {
+        return sampled;
+    }
+    
+    public void setSampled(Boolean sampled) {
+        this.sampled = sampled;
+    }
+    
+    public Long getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(Long updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -0,0 +1,208 @@
+package com.trae.loganalysis.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * 分析任务，每个数据行在每个阶段对应一条任务记录
+ */
+@Entity
+@Table(name = "analysis_task")
+public class AnalysisTask {
+
+    public static final String STAGE_ROW_ANALYSIS = "ROW_ANALYSIS";
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_WAITING = "WAITING";
+    public static final String STATUS_DEFERRED = "DEFERRED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_TIMED_OUT = "TIMED_OUT";
+    public static final String STATUS_PAUSED = "PAUSED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @Column(name = "file_data_id", nullable = false)
+    private Long fileDataId;
+
+    @Column(name = "stage", nullable = false)
+    private String stage;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "create_time", nullable = false)
+    private Date createTime;
+
+    @Column(name = "update_time", nullable = false)
+    private Date updateTime;
+
+    @Column(name = "start_time")
+    private Date startTime;
+
+    @Column(name = "finish_time")
+    private Date finishTime;
+
+    // 持有租约的实例ID
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    // 每次领取生成的租约令牌，用于判断租约是否仍归当前执行者所有
+    @Column(name = "lease_token")
+    private String leaseToken;
+
+    // 租约过期时间（毫秒时间戳），过期后任务可被其他实例重新领取
+    @Column(name = "lease_expire_time")
+    private Long leaseExpireTime;
+
+    // 错误签名聚类ID，同一聚类只有代表行实际执行分析，其余行等待结果分发
+    @Column(name = "cluster_id")
+    private String clusterId;
+
+    // 是否在抽样分析的样本中，未被抽中的任务处于DEFERRED状态，扩展到全量分析时再执行
+    @Column(name = "sampled")
+    private Boolean sampled;
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(Long fileId) {
+        this.fileId = fileId;
+    }
+
+    public Long getFileDataId() {
+        return fileDataId;
+    }
+
+    public void setFileDataId(Long fileDataId) {
+        this.fileDataId = fileDataId;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+    public Date getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(Date updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    public Date getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Date finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public String getLeaseToken() {
+        return leaseToken;
+    }
+
+    public void setLeaseToken(String leaseToken) {
+        this.leaseToken = leaseToken;
+    }
+
+    public Long getLeaseExpireTime() {
+        return leaseExpireTime;
+    }
+
+    public void setLeaseExpireTime(Long leaseExpireTime) {
+        this.leaseExpireTime = leaseExpireTime;
+    }
+
+    public String getClusterId() {
+        return clusterId;
+    }
+
+    public void setClusterId(String clusterId) {
+        this.clusterId = clusterId;
+    }
+
+    public Boolean getSampled() {
+        return sampled;
+    }
+
+    public void setSampled(Boolean sampled) {
+        this.sampled = sampled;
+    }
+}
@@ -0,0 +1,147 @@
+package com.trae.loganalysis.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * 异步导出任务：后台生成导出文件，客户端轮询进度后下载，导出文件保留一段时间后自动清理
+ */
+@Entity
+@Table(name = "export_job")
+public class ExportJob {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    // PENDING、RUNNING、SUCCESS、FAILED，导出文件被清理后为EXPIRED
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    // 待导出的结果数，提交时统计
+    @Column(name = "total_rows")
+    private Long totalRows;
+
+    // 已写出的结果数
+    @Column(name = "written_rows")
+    private Long writtenRows;
+
+    @Column(name = "file_path", columnDefinition = "TEXT")
+    private String filePath;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "create_time", nullable = false)
+    private Date createTime;
+
+    @Column(name = "finish_time")
+    private Date finishTime;
+
+    // 提交并执行导出任务的实例ID
+    @Column(name = "owner")
+    private String owner;
+
+    // 执行实例最近一次心跳时间（毫秒时间戳）
+    @Column(name = "heartbeat_time")
+    private Long heartbeatTime;
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(Long fileId) {
+        this.fileId = fileId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(Long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public Long getWrittenRows() {
+        return writtenRows;
+    }
+
+    public void setWrittenRows(Long writtenRows) {
+        this.writtenRows = writtenRows;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+    public Date getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Date finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Long getHeartbeatTime() {
+        return heartbeatTime;
+    }
+
+    public void setHeartbeatTime(Long heartbeatTime) {
+        this.heartbeatTime = heartbeatTime;
+    }
+}
@@ -32,6 +32,22 @@ public class UploadFile {
     @Column(name = "created_by")
     private String createdBy;
 
+    // 分析优先级，数值越大分得的并发份额越多
+    @Column(name = "priority")
+    private Integer priority;
+
+    // 分析截止时间（毫秒时间戳），截止后未完成的数据行记为超时，文件以部分结果完成
+    @Column(name = "deadline_time")
+    private Long deadlineTime;
+
+    // 所属的批量分析ID，单独启动的文件为空
+    @Column(name = "batch_id")
+    private Long batchId;
+
+    // 创建任务的最近进度时间（毫秒时间戳），准备中的文件据此判断创建任务的进程是否已退出
+    @Column(name = "prepare_time")
+    private Long prepareTime;
+
     // Getters and Setters
 
     public Long getId() {
@@ -97,4 +113,36 @@ public class UploadFile {
     public void setCreatedBy(String createdBy) {
         this.createdBy = createdBy;
     }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    public Long getDeadlineTime() {
+        return deadlineTime;
+    }
+
+    public void setDeadlineTime(Long deadlineTime) {
+        this.deadlineTime = deadlineTime;
+    }
+
+    public Long getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+
+    public Long getPrepareTime() {
+        return prepareTime;
+    }
+
+    public void setPrepareTime(Long prepareTime) {
+        this.prepareTime = prepareTime;
+    }
 }
\ No newline at end of file
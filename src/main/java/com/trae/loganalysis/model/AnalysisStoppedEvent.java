@@ -0,0 +1,23 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 文件分析被取消或暂停时发布的事件，调度器据此中断本实例正在执行的任务
+ */
+public class AnalysisStoppedEvent {
+
+    private final Long fileId;
+    private final String status;
+
+    public AnalysisStoppedEvent(Long fileId, String status) {
+        this.fileId = fileId;
+        this.status = status;
+    }
+
+    public Long getFileId() {
+        return fileId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
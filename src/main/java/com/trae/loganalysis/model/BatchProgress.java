@@ -0,0 +1,115 @@
+package com.trae.loganalysis.model;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 批量分析进度：按状态汇总批量中所有文件和任务的数量
+ */
+public class BatchProgress {
+
+    private Long batchId;
+
+    /**
+     * 批量分析状态：PREPARING、STARTED
+     */
+    private String status;
+
+    private Date createTime;
+
+    private int fileCount;
+
+    /**
+     * 各状态的文件数
+     */
+    private Map<String, Long> fileStatusCounts;
+
+    /**
+     * 各状态的任务数
+     */
+    private Map<String, Long> taskStatusCounts;
+
+    private long totalTasks;
+
+    /**
+     * 已结束（成功、失败、超时、取消）的任务数
+     */
+    private long finishedTasks;
+
+    /**
+     * 所有文件是否都已结束分析
+     */
+    private boolean finished;
+
+    public Long getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    public Map<String, Long> getFileStatusCounts() {
+        return fileStatusCounts;
+    }
+
+    public void setFileStatusCounts(Map<String, Long> fileStatusCounts) {
+        this.fileStatusCounts = fileStatusCounts;
+    }
+
+    public Map<String, Long> getTaskStatusCounts() {
+        return taskStatusCounts;
+    }
+
+    public void setTaskStatusCounts(Map<String, Long> taskStatusCounts) {
+        this.taskStatusCounts = taskStatusCounts;
+    }
+
+    public long getTotalTasks() {
+        return totalTasks;
+    }
+
+    public void setTotalTasks(long totalTasks) {
+        this.totalTasks = totalTasks;
+    }
+
+    public long getFinishedTasks() {
+        return finishedTasks;
+    }
+
+    public void setFinishedTasks(long finishedTasks) {
+        this.finishedTasks = finishedTasks;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+}
@@ -0,0 +1,24 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 导出文件：缓存中的导出文件路径及其对应结果版本的ETag
+ */
+public class ExportFile {
+
+    private final String filePath;
+
+    private final String eTag;
+
+    public ExportFile(String filePath, String eTag) {
+        this.filePath = filePath;
+        this.eTag = eTag;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+}
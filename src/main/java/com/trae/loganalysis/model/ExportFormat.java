@@ -0,0 +1,38 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 导出格式
+ */
+public enum ExportFormat {
+
+    XLSX("xlsx"),
+    CSV("csv"),
+    NDJSON("ndjson");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 按请求参数解析导出格式，不区分大小写
+     * @param value 格式名称，为空时为xlsx
+     * @return 导出格式
+     */
+    public static ExportFormat fromParam(String value) {
+        if (value == null || value.isEmpty()) {
+            return XLSX;
+        }
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + value);
+    }
+}
@@ -0,0 +1,50 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 导出时使用的扁平行投影：分析结果与对应数据行连接后的导出列
+ */
+public interface ExportRowView {
+
+    /**
+     * 数据行序号、结果ID和AI建议状态，仅分页查询返回，用作分页键和按页生成AI建议
+     */
+    Integer getRowIndex();
+
+    Long getResultId();
+
+    String getAiStatus();
+
+    String getColumn1();
+
+    String getColumn2();
+
+    String getColumn3();
+
+    String getColumn4();
+
+    /**
+     * 错误日志
+     */
+    String getLogInfo();
+
+    String getClassName();
+
+    Integer getLineNumber();
+
+    String getMethodName();
+
+    /**
+     * 方法源码
+     */
+    String getCode();
+
+    /**
+     * 分析时预先计算的导出源码，旧版本数据为空
+     */
+    String getExportCode();
+
+    /**
+     * AI建议内容
+     */
+    String getResultContent();
+}
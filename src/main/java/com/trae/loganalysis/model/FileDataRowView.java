@@ -0,0 +1,22 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 分析时使用的数据行投影，只包含分析所需的列，不加载data_content等大字段
+ */
+public interface FileDataRowView {
+
+    /**
+     * 数据行ID
+     */
+    Long getId();
+
+    /**
+     * 第四列，作为日志和源码查询条件
+     */
+    String getColumn4();
+
+    /**
+     * 配置的时间列的值，用于确定日志查询的时间范围；分页读取任务种子时不查询，为null
+     */
+    String getEventTime();
+}
@@ -0,0 +1,28 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 日志中记录的代码位置，对应日志里形如[org.spring.config.UpdateCommon.update:98]的片段
+ */
+public class LogLocation {
+    private final String className;
+    private final String methodName;
+    private final Integer lineNumber;
+
+    public LogLocation(String className, String methodName, Integer lineNumber) {
+        this.className = className;
+        this.methodName = methodName;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+}
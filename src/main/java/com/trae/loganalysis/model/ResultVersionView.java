@@ -0,0 +1,16 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 文件分析结果的版本投影，用于判断导出缓存是否仍然有效
+ */
+public interface ResultVersionView {
+
+    Long getResultCount();
+
+    Long getMaxId();
+
+    /**
+     * 最后写入时间（毫秒时间戳），旧版本数据为空
+     */
+    Long getMaxUpdateTime();
+}
@@ -0,0 +1,17 @@
+package com.trae.loganalysis.model;
+
+/**
+ * 按状态分组的任务数量统计（原生查询投影），也用于按状态统计批量分析中的文件数量
+ */
+public interface TaskStatusCount {
+
+    /**
+     * 任务状态
+     */
+    String getStatus();
+
+    /**
+     * 该状态下的任务数
+     */
+    Long getCount();
+}
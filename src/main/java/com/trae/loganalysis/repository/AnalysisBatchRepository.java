@@ -0,0 +1,18 @@
+package com.trae.loganalysis.repository;
+
+import com.trae.loganalysis.entity.AnalysisBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AnalysisBatchRepository extends JpaRepository<AnalysisBatch, Long> {
+
+    /**
+     * 按状态查询批量分析
+     * @param status 批量分析状态
+     * @return 批量分析列表
+     */
+    List<AnalysisBatch> findByStatus(String status);
+}
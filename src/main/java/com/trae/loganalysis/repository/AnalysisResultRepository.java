@@ -1,14 +1,163 @@
 package com.trae.loganalysis.repository;
 
 import com.trae.loganalysis.entity.AnalysisResult;
+import com.trae.loganalysis.model.ExportRowView;
+import com.trae.loganalysis.model.ResultVersionView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AnalysisResultRepository extends JpaRepository<AnalysisResult, Long> {
     List<AnalysisResult> findByFileId(Long fileId);
+    boolean existsByFileId(Long fileId);
+    long countByFileId(Long fileId);
     List<AnalysisResult> findByFileDataId(Long fileDataId);
     <S extends AnalysisResult> List<S> saveAll(Iterable<S> entities);
+
+    /**
+     * 将聚类代表行的分析结果复制给同一聚类中等待分发的数据行
+     * @param fileId 文件ID
+     * @param clusterId 聚类ID
+     * @param sourceResultId 代表行的分析结果ID
+     * @return 插入的结果数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO analysis_result (file_id, file_data_id, result_content, analysis_time, status, " +
+            "log_info, code, export_code, class_name, line_number, method_name, cluster_id, code_start_line, ai_status, sampled, update_time) " +
+            "SELECT t.file_id, t.file_data_id, r.result_content, r.analysis_time, r.status, " +
+            "r.log_info, r.code, r.export_code, r.class_name, r.line_number, r.method_name, r.cluster_id, r.code_start_line, r.ai_status, r.sampled, r.update_time " +
+            "FROM analysis_task t JOIN analysis_result r ON r.id = ?3 " +
+            "WHERE t.file_id = ?1 AND t.cluster_id = ?2 AND t.status = 'WAITING'", nativeQuery = true)
+    int copyToClusterMembers(Long fileId, String clusterId, Long sourceResultId);
+
+    /**
+     * 查询文件分析结果的版本：结果数、最大ID和最后写入时间，任一结果新增、删除或更新后版本都会变化
+     * @param fileId 文件ID
+     * @return 结果版本
+     */
+    @Query(value = "SELECT COUNT(*) AS resultCount, MAX(id) AS maxId, MAX(update_time) AS maxUpdateTime " +
+            "FROM analysis_result WHERE file_id = ?1", nativeQuery = true)
+    ResultVersionView findResultVersion(Long fileId);
+
+    /**
+     * 以只进游标逐行读取文件的导出行：数据行按row_index顺序驱动，连接对应的分析结果，
+     * 不加载实体也不在内存中建立映射。须在事务内消费并关闭返回的Stream
+     * @param fileId 文件ID
+     * @return 导出行流
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT d.column1 AS column1, d.column2 AS column2, d.column3 AS column3, d.column4 AS column4, " +
+            "r.log_info AS logInfo, r.class_name AS className, r.line_number AS lineNumber, r.method_name AS methodName, " +
+            "r.code AS code, r.export_code AS exportCode, r.result_content AS resultContent " +
+            "FROM file_data d JOIN analysis_result r ON r.file_data_id = d.id " +
+            "WHERE d.file_id = ?1 ORDER BY d.row_index ASC, r.id ASC", nativeQuery = true)
+    Stream<ExportRowView> streamExportRows(Long fileId);
+
+    /**
+     * 按(row_index, 结果ID)键集分页读取文件的导出行，每页在各自的短事务中读取，
+     * 用于直接写出到响应的流式导出，避免在整个下载期间持有读事务而阻塞WAL检查点
+     * @param fileId 文件ID
+     * @param afterRowIndex 上一页最后一行的row_index，第一页传-1
+     * @param afterResultId 上一页最后一行的结果ID，第一页传0
+     * @param limit 每页行数
+     * @return 导出行
+     */
+    @Query(value = "SELECT d.row_index AS rowIndex, r.id AS resultId, r.ai_status AS aiStatus, " +
+            "d.column1 AS column1, d.column2 AS column2, d.column3 AS column3, d.column4 AS column4, " +
+            "r.log_info AS logInfo, r.class_name AS className, r.line_number AS lineNumber, r.method_name AS methodName, " +
+            "r.code AS code, r.export_code AS exportCode, r.result_content AS resultContent " +
+            "FROM file_data d JOIN analysis_result r ON r.file_data_id = d.id " +
+            "WHERE d.file_id = ?1 AND (d.row_index > ?2 OR (d.row_index = ?2 AND r.id > ?3)) " +
+            "ORDER BY d.row_index ASC, r.id ASC LIMIT ?4", nativeQuery = true)
+    List<ExportRowView> findExportRowsAfter(Long fileId, int afterRowIndex, long afterResultId, int limit);
+
+    /**
+     * 按ID键集查询文件中待生成AI建议的分析结果
+     * @param fileId 文件ID
+     * @param afterId 上一批最后一条结果的ID，第一批传0
+     * @param limit 最多返回条数
+     * @return 分析结果列表
+     */
+    @Query(value = "SELECT * FROM analysis_result WHERE file_id = ?1 AND ai_status = 'PENDING' AND id > ?2 " +
+            "ORDER BY id ASC LIMIT ?3", nativeQuery = true)
+    List<AnalysisResult> findPendingAiSuggestionsByFileId(Long fileId, Long afterId, int limit);
+
+    /**
+     * 查询待生成AI建议的分析结果
+     * @param limit 最多返回条数
+     * @return 分析结果列表
+     */
+    @Query(value = "SELECT * FROM analysis_result WHERE ai_status = 'PENDING' ORDER BY id ASC LIMIT ?1", nativeQuery = true)
+    List<AnalysisResult> findPendingAiSuggestions(int limit);
+
+    /**
+     * 保存按需生成的AI建议，仅更新仍处于待生成状态的结果
+     * @param id 分析结果ID
+     * @param content AI建议内容
+     * @param aiStatus AI建议状态
+     * @param updateTime 写入时间（毫秒时间戳）
+     * @return 更新的结果数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_result SET result_content = ?2, ai_status = ?3, update_time = ?4 " +
+            "WHERE id = ?1 AND ai_status = 'PENDING'", nativeQuery = true)
+    int completeAiSuggestion(Long id, String content, String aiStatus, long updateTime);
+
+    /**
+     * 保存按需生成的AI建议到同一聚类的所有待生成结果
+     * @param fileId 文件ID
+     * @param clusterId 聚类ID
+     * @param content AI建议内容
+     * @param aiStatus AI建议状态
+     * @param updateTime 写入时间（毫秒时间戳）
+     * @return 更新的结果数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_result SET result_content = ?3, ai_status = ?4, update_time = ?5 " +
+            "WHERE file_id = ?1 AND cluster_id = ?2 AND ai_status = 'PENDING'", nativeQuery = true)
+    int completeClusterAiSuggestions(Long fileId, String clusterId, String content, String aiStatus, long updateTime);
+
+    /**
+     * 记录一次按需生成AI建议失败：失败次数加一，未达到上限时保持待生成以便下次读取或后台预生成时重试，
+     * 达到上限后标记为生成失败
+     * @param id 分析结果ID
+     * @param content 失败信息
+     * @param maxAttempts 最大尝试次数
+     * @param updateTime 写入时间（毫秒时间戳）
+     * @return 更新的结果数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_result SET result_content = ?2, ai_attempts = COALESCE(ai_attempts, 0) + 1, " +
+            "ai_status = CASE WHEN COALESCE(ai_attempts, 0) + 1 >= ?3 THEN 'FAILED' ELSE 'PENDING' END, update_time = ?4 " +
+            "WHERE id = ?1 AND ai_status = 'PENDING'", nativeQuery = true)
+    int recordAiFailure(Long id, String content, int maxAttempts, long updateTime);
+
+    /**
+     * 为同一聚类的所有待生成结果记录一次按需生成AI建议失败
+     * @param fileId 文件ID
+     * @param clusterId 聚类ID
+     * @param content 失败信息
+     * @param maxAttempts 最大尝试次数
+     * @param updateTime 写入时间（毫秒时间戳）
+     * @return 更新的结果数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_result SET result_content = ?3, ai_attempts = COALESCE(ai_attempts, 0) + 1, " +
+            "ai_status = CASE WHEN COALESCE(ai_attempts, 0) + 1 >= ?4 THEN 'FAILED' ELSE 'PENDING' END, update_time = ?5 " +
+            "WHERE file_id = ?1 AND cluster_id = ?2 AND ai_status = 'PENDING'", nativeQuery = true)
+    int recordClusterAiFailure(Long fileId, String clusterId, String content, int maxAttempts, long updateTime);
 }
@@ -0,0 +1,214 @@
+package com.trae.loganalysis.repository;
+
+import com.trae.loganalysis.entity.AnalysisTask;
+import com.trae.loganalysis.model.TaskStatusCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface AnalysisTaskRepository extends JpaRepository<AnalysisTask, Long> {
+
+    /**
+     * 原子领取指定文件的一批任务：待处理的任务以及租约已过期的运行中任务，
+     * 写入本次领取的租约令牌后再通过findByLeaseToken取回
+     * @param owner 实例ID
+     * @param token 本次领取的租约令牌
+     * @param expireTime 租约过期时间（毫秒时间戳）
+     * @param now 当前时间
+     * @param nowMillis 当前时间（毫秒时间戳）
+     * @param maxAttempts 最大尝试次数，达到该次数的过期任务不再领取
+     * @param fileId 文件ID
+     * @param limit 最大领取数量
+     * @return 领取的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = 'RUNNING', lease_owner = ?1, lease_token = ?2, lease_expire_time = ?3, " +
+            "attempts = attempts + 1, start_time = ?4, update_time = ?4 " +
+            "WHERE id IN (SELECT id FROM analysis_task WHERE file_id = ?7 AND (status = 'PENDING' " +
+            "OR (status = 'RUNNING' AND lease_expire_time < ?5 AND attempts < ?6)) ORDER BY id ASC LIMIT ?8)", nativeQuery = true)
+    int claimTasks(String owner, String token, long expireTime, Date now, long nowMillis, int maxAttempts, Long fileId, int limit);
+
+    /**
+     * 根据租约令牌获取任务
+     */
+    List<AnalysisTask> findByLeaseToken(String leaseToken);
+
+    /**
+     * 租约持有者结束任务，租约已被他人接管时不更新
+     * @return 更新的任务数，0表示租约已丢失
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = ?3, last_error = ?4, finish_time = ?5, update_time = ?5, " +
+            "lease_owner = NULL, lease_token = NULL, lease_expire_time = NULL " +
+            "WHERE id = ?1 AND lease_token = ?2 AND status = 'RUNNING'", nativeQuery = true)
+    int finishLeasedTask(Long id, String leaseToken, String status, String lastError, Date finishTime);
+
+    /**
+     * 退回已领取但未能开始执行的任务（如流水线队列已满），撤销本次领取计入的尝试次数
+     * @return 更新的任务数，0表示租约已丢失
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = 'PENDING', attempts = MAX(attempts - 1, 0), update_time = ?3, " +
+            "lease_owner = NULL, lease_token = NULL, lease_expire_time = NULL " +
+            "WHERE id = ?1 AND lease_token = ?2 AND status = 'RUNNING'", nativeQuery = true)
+    int returnLeasedTask(Long id, String leaseToken, Date now);
+
+    /**
+     * 续约：延长实例持有的所有运行中任务的租约
+     * @return 续约的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET lease_expire_time = ?2 WHERE lease_owner = ?1 AND status = 'RUNNING'", nativeQuery = true)
+    int renewLeases(String owner, long expireTime);
+
+    /**
+     * 将租约已过期且尝试次数用尽的任务标记为失败
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = 'FAILED', last_error = 'Lease expired', finish_time = ?3, update_time = ?3, " +
+            "lease_owner = NULL, lease_token = NULL, lease_expire_time = NULL " +
+            "WHERE status = 'RUNNING' AND lease_expire_time < ?1 AND attempts >= ?2", nativeQuery = true)
+    int failExpiredTasks(long nowMillis, int maxAttempts, Date now);
+
+    /**
+     * 批量更新文件下处于指定状态的任务，并清除租约，用于取消、恢复分析和文件超时
+     * @param fileId 文件ID
+     * @param fromStatuses 需要更新的任务状态
+     * @param toStatus 新状态
+     * @param now 当前时间
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = ?3, update_time = ?4, " +
+            "lease_owner = NULL, lease_token = NULL, lease_expire_time = NULL " +
+            "WHERE file_id = ?1 AND status IN (?2)", nativeQuery = true)
+    int updateStatusByFileId(Long fileId, Collection<String> fromStatuses, String toStatus, Date now);
+
+    /**
+     * 暂停文件下未结束的任务并清除租约。运行中的任务被中断，撤销其领取时计入的尝试次数，
+     * 避免多次暂停、恢复耗尽重试次数
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = 'PAUSED', update_time = ?2, " +
+            "attempts = CASE WHEN status = 'RUNNING' THEN MAX(attempts - 1, 0) ELSE attempts END, " +
+            "lease_owner = NULL, lease_token = NULL, lease_expire_time = NULL " +
+            "WHERE file_id = ?1 AND status IN ('PENDING', 'RUNNING')", nativeQuery = true)
+    int pauseTasks(Long fileId, Date now);
+
+    /**
+     * 结束同一聚类中等待结果分发的任务
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = ?3, last_error = ?4, finish_time = ?5, update_time = ?5 " +
+            "WHERE file_id = ?1 AND cluster_id = ?2 AND status = 'WAITING'", nativeQuery = true)
+    int finishClusterMembers(Long fileId, String clusterId, String status, String lastError, Date finishTime);
+
+    /**
+     * 代表行未能分发结果（失败、超时或租约过期失败）时，为每个仍在等待的聚类提升一个成员为新的代表行，
+     * 失败或超时的代表行数已达上限的聚类不再提升
+     * @param maxRepresentatives 每个聚类最多尝试的代表行数
+     * @return 提升的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = 'PENDING', update_time = ?3 WHERE id IN " +
+            "(SELECT MIN(id) FROM analysis_task WHERE file_id = ?1 AND status = 'WAITING' AND cluster_id NOT IN " +
+            "(SELECT cluster_id FROM analysis_task WHERE file_id = ?1 AND cluster_id IS NOT NULL " +
+            "AND status IN ('FAILED', 'TIMED_OUT') GROUP BY cluster_id HAVING COUNT(*) >= ?2) " +
+            "GROUP BY cluster_id)", nativeQuery = true)
+    int promoteWaitingRepresentatives(Long fileId, int maxRepresentatives, Date now);
+
+    /**
+     * 失败或超时的代表行数已达上限的聚类，其余等待中的数据行以失败结束
+     * @param maxRepresentatives 每个聚类最多尝试的代表行数
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = 'FAILED', last_error = 'All cluster representatives failed', " +
+            "finish_time = ?3, update_time = ?3 WHERE file_id = ?1 AND status = 'WAITING' AND cluster_id IN " +
+            "(SELECT cluster_id FROM analysis_task WHERE file_id = ?1 AND cluster_id IS NOT NULL " +
+            "AND status IN ('FAILED', 'TIMED_OUT') GROUP BY cluster_id HAVING COUNT(*) >= ?2)", nativeQuery = true)
+    int failExhaustedClusterMembers(Long fileId, int maxRepresentatives, Date now);
+
+    /**
+     * 统计聚类中处于指定状态的任务数
+     */
+    long countByFileIdAndClusterIdAndStatusIn(Long fileId, String clusterId, Collection<String> statuses);
+
+    /**
+     * 抽样分析扩展为全量分析：释放未被抽中的任务，每个聚类的第一行作为代表行进入待执行，其余行等待结果分发
+     * @return 释放的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET update_time = ?2, status = CASE WHEN cluster_id IS NULL OR id IN " +
+            "(SELECT MIN(id) FROM analysis_task WHERE file_id = ?1 AND status = 'DEFERRED' GROUP BY cluster_id) " +
+            "THEN 'PENDING' ELSE 'WAITING' END " +
+            "WHERE file_id = ?1 AND status = 'DEFERRED'", nativeQuery = true)
+    int releaseDeferredTasks(Long fileId, Date now);
+
+    /**
+     * 删除文件的所有任务，用于恢复创建任务中断的文件
+     * @return 删除的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM analysis_task WHERE file_id = ?1", nativeQuery = true)
+    int deleteAllByFileId(Long fileId);
+
+    /**
+     * 统计文件下处于指定状态的任务数
+     */
+    long countByFileIdAndStatusIn(Long fileId, Collection<String> statuses);
+
+    /**
+     * 统计所有文件中处于指定状态的任务数
+     */
+    long countByStatusIn(Collection<String> statuses);
+
+    /**
+     * 按状态统计文件的任务数量
+     * @param fileId 文件ID
+     * @return 各状态的任务数
+     */
+    @Query(value = "SELECT status AS status, COUNT(*) AS count FROM analysis_task WHERE file_id = ?1 GROUP BY status", nativeQuery = true)
+    List<TaskStatusCount> countByFileIdGroupByStatus(Long fileId);
+
+    /**
+     * 按状态统计批量分析中所有文件的任务数量
+     * @param batchId 批量分析ID
+     * @return 各状态的任务数
+     */
+    @Query(value = "SELECT t.status AS status, COUNT(*) AS count FROM analysis_task t " +
+            "JOIN upload_file f ON f.id = t.file_id WHERE f.batch_id = ?1 GROUP BY t.status", nativeQuery = true)
+    List<TaskStatusCount> countByBatchIdGroupByStatus(Long batchId);
+
+    /**
+     * 释放实例持有的运行中任务，用于服务重启后让上次中断的任务立即可被领取
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE analysis_task SET status = 'PENDING', lease_owner = NULL, lease_token = NULL, lease_expire_time = NULL " +
+            "WHERE lease_owner = ?1 AND status = 'RUNNING'", nativeQuery = true)
+    int releaseOwnedTasks(String owner);
+}
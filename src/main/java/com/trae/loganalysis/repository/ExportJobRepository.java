@@ -0,0 +1,74 @@
+package com.trae.loganalysis.repository;
+
+import com.trae.loganalysis.entity.ExportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface ExportJobRepository extends JpaRepository<ExportJob, Long> {
+
+    /**
+     * 查询实例持有的处于指定状态的导出任务
+     * @param owner 实例ID
+     * @param statuses 状态列表
+     * @return 导出任务列表
+     */
+    List<ExportJob> findByOwnerAndStatusInOrderByIdAsc(String owner, Collection<String> statuses);
+
+    /**
+     * 文件没有未结束的导出任务时插入一个待执行的导出任务，判断与插入在同一条语句中完成
+     * @return 插入的行数，0表示文件已有未结束的导出任务
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO export_job (file_id, status, total_rows, written_rows, create_time, owner, heartbeat_time) " +
+            "SELECT ?1, 'PENDING', ?2, 0, ?3, ?4, ?5 WHERE NOT EXISTS " +
+            "(SELECT 1 FROM export_job WHERE file_id = ?1 AND status IN ('PENDING', 'RUNNING'))", nativeQuery = true)
+    int insertIfNoActiveJob(Long fileId, long totalRows, Date createTime, String owner, long heartbeatTime);
+
+    /**
+     * 更新实例持有的未结束导出任务的心跳
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE export_job SET heartbeat_time = ?2 WHERE owner = ?1 AND status IN ('PENDING', 'RUNNING')", nativeQuery = true)
+    int heartbeat(String owner, long nowMillis);
+
+    /**
+     * 其他实例持有且心跳超时的未结束导出任务（持有实例已退出）标记为失败
+     * @param owner 当前实例ID
+     * @param staleBefore 心跳早于该时间（毫秒时间戳）视为超时
+     * @param now 当前时间
+     * @return 更新的任务数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE export_job SET status = 'FAILED', error_message = 'Export job abandoned', finish_time = ?3 " +
+            "WHERE status IN ('PENDING', 'RUNNING') AND (owner IS NULL OR owner <> ?1) " +
+            "AND (heartbeat_time IS NULL OR heartbeat_time < ?2)", nativeQuery = true)
+    int failAbandonedJobs(String owner, long staleBefore, Date now);
+
+    /**
+     * 查询文件处于指定状态的导出任务
+     * @param fileId 文件ID
+     * @param statuses 状态列表
+     * @return 导出任务列表
+     */
+    List<ExportJob> findByFileIdAndStatusIn(Long fileId, Collection<String> statuses);
+
+    /**
+     * 查询在指定时间之前结束的导出任务
+     * @param statuses 状态列表
+     * @param finishTime 结束时间
+     * @return 导出任务列表
+     */
+    List<ExportJob> findByStatusInAndFinishTimeBefore(Collection<String> statuses, Date finishTime);
+}
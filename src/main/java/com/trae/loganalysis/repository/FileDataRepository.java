@@ -1,12 +1,37 @@
 package com.trae.loganalysis.repository;
 
 import com.trae.loganalysis.entity.FileData;
+import com.trae.loganalysis.model.FileDataRowView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FileDataRepository extends JpaRepository<FileData, Long> {
     List<FileData> findByFileId(Long fileId);
+
+    /**
+     * 按ID键集分页读取文件的数据行投影，避免OFFSET分页随页数增长的扫描开销
+     * @param fileId 文件ID
+     * @param afterId 上一页最后一行的ID，第一页传0
+     * @param limit 每页大小
+     * @return 数据行投影列表
+     */
+    @Query(value = "SELECT id AS id, column4 AS column4, NULL AS eventTime FROM file_data " +
+            "WHERE file_id = ?1 AND id > ?2 ORDER BY id ASC LIMIT ?3", nativeQuery = true)
+    List<FileDataRowView> findRowViewsAfterId(Long fileId, Long afterId, int limit);
+
+    /**
+     * 根据ID读取数据行投影
+     * @param id 数据行ID
+     * @param eventTimeColumn 作为事件时间的列名（column1~column3），其他值时eventTime为null
+     * @return 数据行投影
+     */
+    @Query(value = "SELECT id AS id, column4 AS column4, CASE ?2 WHEN 'column1' THEN column1 " +
+            "WHEN 'column2' THEN column2 WHEN 'column3' THEN column3 END AS eventTime " +
+            "FROM file_data WHERE id = ?1", nativeQuery = true)
+    Optional<FileDataRowView> findRowViewById(Long id, String eventTimeColumn);
 }
@@ -1,9 +1,12 @@
 package com.trae.loganalysis.repository;
 
 import com.trae.loganalysis.entity.UploadFile;
+import com.trae.loganalysis.model.TaskStatusCount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -25,4 +28,91 @@ public interface UploadFileRepository extends JpaRepository<UploadFile, Long> {
      */
     @Query(value = "SELECT COUNT(*) FROM upload_file", nativeQuery = true)
     long countAllUploadFiles();
+
+    /**
+     * 按状态查询上传文件
+     * @param status 文件状态
+     * @return 上传文件列表
+     */
+    List<UploadFile> findByStatus(String status);
+
+    /**
+     * 查询批量分析中处于指定状态的文件
+     * @param batchId 批量分析ID
+     * @param status 文件状态
+     * @return 上传文件列表
+     */
+    List<UploadFile> findByBatchIdAndStatusOrderByIdAsc(Long batchId, String status);
+
+    /**
+     * 按状态统计批量分析中的文件数量
+     * @param batchId 批量分析ID
+     * @return 各状态的文件数
+     */
+    @Query(value = "SELECT status AS status, COUNT(*) AS count FROM upload_file WHERE batch_id = ?1 GROUP BY status", nativeQuery = true)
+    List<TaskStatusCount> countByBatchIdGroupByStatus(Long batchId);
+
+    /**
+     * 仅当文件处于期望状态时更新状态，避免多个实例并发更新时互相覆盖
+     * @param id 文件ID
+     * @param expectedStatus 期望的当前状态
+     * @param newStatus 新状态
+     * @return 更新的行数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE upload_file SET status = ?3 WHERE id = ?1 AND status = ?2", nativeQuery = true)
+    int updateStatusIfCurrent(Long id, String expectedStatus, String newStatus);
+
+    /**
+     * 设置刚进入准备中的文件的优先级、截止时间和创建任务进度时间
+     * @return 更新的行数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE upload_file SET priority = ?2, deadline_time = ?3, prepare_time = ?4 " +
+            "WHERE id = ?1 AND status = 'PREPARING'", nativeQuery = true)
+    int initPreparing(Long id, int priority, Long deadlineTime, long nowMillis);
+
+    /**
+     * 将仍待分析且不属于其他批量的文件加入批量分析，已被启动或被其他批量占用的文件不更新
+     * @param batchId 批量分析ID
+     * @param ids 文件ID列表
+     * @return 加入批量的文件数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE upload_file SET batch_id = ?1 " +
+            "WHERE id IN (?2) AND status = 'UPLOADED' AND batch_id IS NULL", nativeQuery = true)
+    int assignBatchIfUploaded(Long batchId, List<Long> ids);
+
+    /**
+     * 更新准备中文件的创建任务进度时间
+     * @return 更新的行数，0表示文件已不在准备中（准备已被恢复）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE upload_file SET prepare_time = ?2 WHERE id = ?1 AND status = 'PREPARING'", nativeQuery = true)
+    int touchPreparing(Long id, long nowMillis);
+
+    /**
+     * 创建任务失败时将准备中的文件标记为失败，准备已被恢复时不更新
+     * @return 更新的行数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE upload_file SET status = 'FAILED', error_message = ?2 WHERE id = ?1 AND status = 'PREPARING'", nativeQuery = true)
+    int failPreparing(Long id, String errorMessage);
+
+    /**
+     * 创建任务的进度已超时的准备中文件恢复为待分析
+     * @param id 文件ID
+     * @param staleBefore 进度时间早于该时间（毫秒时间戳）视为超时
+     * @return 更新的行数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE upload_file SET status = 'UPLOADED', prepare_time = NULL, deadline_time = NULL " +
+            "WHERE id = ?1 AND status = 'PREPARING' AND (prepare_time IS NULL OR prepare_time < ?2)", nativeQuery = true)
+    int resetStalePreparing(Long id, long staleBefore);
 }
@@ -0,0 +1,356 @@
+package com.trae.loganalysis.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.trae.loganalysis.entity.AnalysisResult;
+import com.trae.loganalysis.entity.AnalysisTask;
+import com.trae.loganalysis.repository.AnalysisResultRepository;
+import com.trae.loganalysis.repository.AnalysisTaskRepository;
+import com.trae.loganalysis.util.AiRequestBuilder;
+import com.trae.loganalysis.util.CallAbortScope;
+import com.trae.loganalysis.util.Deadline;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AI建议服务：调用AI建议接口。
+ * 按需生成模式（file.analysis.ai.mode=lazy）下批量分析只做日志和源码抽取，
+ * AI建议在首次读取结果（按数据行查询或导出）时生成并保存，也可以在没有分析任务时于后台低优先级预先生成
+ */
+@Service
+public class AiSuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiSuggestionService.class);
+    private static final String MODE_LAZY = "lazy";
+
+    private final AnalysisResultRepository analysisResultRepository;
+    private final AnalysisTaskRepository analysisTaskRepository;
+
+    // 正在生成的AI建议，同一结果的并发读取共享一次生成
+    private final Map<Long, CompletableFuture<Void>> inProgress = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean prefillRunning = new AtomicBoolean(false);
+
+    private ExecutorService readExecutor;
+    private ExecutorService prefillExecutor;
+
+    // AI建议生成模式：eager为分析时生成，lazy为首次读取时生成
+    @Value("${file.analysis.ai.mode:eager}")
+    private String mode;
+
+    // 读取结果时并行生成AI建议的线程数
+    @Value("${file.analysis.ai.read-parallelism:4}")
+    private int readParallelism;
+
+    @Value("${file.analysis.ai.prefill.enabled:false}")
+    private boolean prefillEnabled;
+
+    // 后台预生成每批处理的结果数
+    @Value("${file.analysis.ai.prefill.batch-size:20}")
+    private int prefillBatchSize;
+
+    // 按需生成AI建议的最大尝试次数，失败次数未达到上限时保持待生成，下次读取或后台预生成时重试
+    @Value("${file.analysis.ai.max-attempts:3}")
+    private int maxAttempts;
+
+    // AI Suggestion Configuration
+    @Value("${api.ai-suggestion.url}")
+    private String aiSuggestionUrl;
+    
+    @Value("${api.ai-suggestion.system-code}")
+    private String aiSuggestionSystemCode;
+    
+    @Value("${api.ai-suggestion.query-params.data-set-id}")
+    private int aiSuggestionDataSetId;
+    
+    @Value("${api.ai-suggestion.query-params.app-id}")
+    private int aiSuggestionAppId;
+    
+    @Value("${api.ai-suggestion.query-params.index-prefix}")
+    private String aiSuggestionIndexPrefix;
+    
+    @Value("${api.ai-suggestion.query-params.size}")
+    private int aiSuggestionSize;
+    
+    @Value("${api.ai-suggestion.query-params.remark}")
+    private String aiSuggestionRemark;
+
+    // 读取结果时生成AI建议的时间预算，与分析时单个数据行的时间预算相同
+    @Value("${file.analysis.deadline.row-ms:300000}")
+    private long rowBudgetMs;
+
+    @Value("${api.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${api.read-timeout-ms:60000}")
+    private int readTimeoutMs;
+
+    // AI请求上下文（日志和方法源码）的最大字符数
+    @Value("${api.ai-suggestion.context-budget-chars:6000}")
+    private int aiContextBudget;
+
+    public AiSuggestionService(AnalysisResultRepository analysisResultRepository,
+                               AnalysisTaskRepository analysisTaskRepository) {
+        this.analysisResultRepository = analysisResultRepository;
+        this.analysisTaskRepository = analysisTaskRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        readExecutor = Executors.newFixedThreadPool(Math.max(readParallelism, 1), runnable -> {
+            Thread thread = new Thread(runnable, "ai-suggestion-read");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prefillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ai-suggestion-prefill");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readExecutor.shutdownNow();
+        prefillExecutor.shutdownNow();
+    }
+
+    /**
+     * 是否为按需生成模式
+     */
+    public boolean isLazy() {
+        return MODE_LAZY.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 根据分析结果中的日志和方法源码生成AI建议
+     * @param result 分析结果
+     * @param deadline 截止时间，接口调用的超时不超过剩余时间
+     * @return AI建议内容
+     */
+    public String suggest(AnalysisResult result, Deadline deadline) throws IOException {
+        Integer codeStartLine = result.getCodeStartLine();
+        String aiContext = new AiRequestBuilder(aiContextBudget)
+                .logMessage(result.getLogInfo())
+                .methodCode(result.getCode(), codeStartLine == null ? 1 : codeStartLine)
+                .errorLine(result.getLineNumber())
+                .build();
+        return callAiSuggestionApi(aiContext, deadline);
+    }
+
+    /**
+     * 为待生成AI建议的结果生成建议并保存，结果对象同时更新
+     * @param results 分析结果列表
+     */
+    public void fillPendingSuggestions(List<AnalysisResult> results) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (AnalysisResult result : results) {
+            if (AnalysisResult.AI_STATUS_PENDING.equals(result.getAiStatus())) {
+                futures.add(generateOnce(result, readExecutor));
+            }
+        }
+        if (futures.isEmpty()) {
+            return;
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        // 共享了其他请求发起的生成时，从数据库读取生成结果
+        for (AnalysisResult result : results) {
+            if (AnalysisResult.AI_STATUS_PENDING.equals(result.getAiStatus())) {
+                analysisResultRepository.findById(result.getId()).ifPresent(saved -> {
+                    result.setResultContent(saved.getResultContent());
+                    result.setAiStatus(saved.getAiStatus());
+                    result.setAiAttempts(saved.getAiAttempts());
+                });
+            }
+        }
+    }
+
+    /**
+     * 没有待执行的分析任务时，在后台低优先级线程中预先生成一批AI建议
+     */
+    @Scheduled(fixedDelayString = "${file.analysis.ai.prefill.interval-ms:10000}")
+    public void prefill() {
+        if (!isLazy() || !prefillEnabled || prefillRunning.get()) {
+            return;
+        }
+        try {
+            long activeTasks = analysisTaskRepository.countByStatusIn(
+                    Arrays.asList(AnalysisTask.STATUS_PENDING, AnalysisTask.STATUS_RUNNING));
+            if (activeTasks > 0) {
+                return;
+            }
+            List<AnalysisResult> pending = analysisResultRepository.findPendingAiSuggestions(prefillBatchSize);
+            if (pending.isEmpty() || !prefillRunning.compareAndSet(false, true)) {
+                return;
+            }
+            prefillExecutor.execute(() -> {
+                try {
+                    for (AnalysisResult result : pending) {
+                        // 在预生成线程中依次执行，已在生成中的结果直接跳过
+                        generateOnce(result, Runnable::run);
+                    }
+                    logger.info("后台预生成AI建议 {} 条", pending.size());
+                } finally {
+                    prefillRunning.set(false);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("后台预生成AI建议失败", e);
+        }
+    }
+
+    /**
+     * 生成一条结果的AI建议，同一结果同时只生成一次
+     * @param result 分析结果
+     * @param executor 执行生成的线程池
+     * @return 生成完成时完成的future，结果已在生成中时返回进行中的future
+     */
+    private CompletableFuture<Void> generateOnce(AnalysisResult result, Executor executor) {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inProgress.putIfAbsent(result.getId(), created);
+        if (existing != null) {
+            return existing;
+        }
+        executor.execute(() -> {
+            try {
+                generate(result);
+                created.complete(null);
+            } catch (Exception e) {
+                created.completeExceptionally(e);
+            } finally {
+                inProgress.remove(result.getId(), created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 生成并保存一条结果的AI建议；同一聚类的待生成结果共享同一条建议
+     */
+    private void generate(AnalysisResult result) {
+        String content;
+        try {
+            content = suggest(result, Deadline.after(rowBudgetMs));
+        } catch (Exception e) {
+            recordFailure(result, e);
+            return;
+        }
+
+        if (result.getClusterId() != null) {
+            analysisResultRepository.completeClusterAiSuggestions(result.getFileId(), result.getClusterId(), content,
+                    AnalysisResult.AI_STATUS_DONE, System.currentTimeMillis());
+        } else {
+            analysisResultRepository.completeAiSuggestion(result.getId(), content, AnalysisResult.AI_STATUS_DONE,
+                    System.currentTimeMillis());
+        }
+        result.setResultContent(content);
+        result.setAiStatus(AnalysisResult.AI_STATUS_DONE);
+    }
+
+    /**
+     * 记录一次生成失败：下游的暂时性错误不应让结果永远没有AI建议，
+     * 失败次数未达到上限时保持待生成，达到上限后才标记为生成失败
+     */
+    private void recordFailure(AnalysisResult result, Exception e) {
+        int attempts = (result.getAiAttempts() == null ? 0 : result.getAiAttempts()) + 1;
+        String aiStatus = attempts >= maxAttempts ? AnalysisResult.AI_STATUS_FAILED : AnalysisResult.AI_STATUS_PENDING;
+        logger.error("生成AI建议失败，结果ID: {}, 第 {} 次", result.getId(), attempts, e);
+
+        String content = "AI suggestion failed: " + e.getMessage();
+        if (result.getClusterId() != null) {
+            analysisResultRepository.recordClusterAiFailure(result.getFileId(), result.getClusterId(), content, maxAttempts,
+                    System.currentTimeMillis());
+        } else {
+            analysisResultRepository.recordAiFailure(result.getId(), content, maxAttempts, System.currentTimeMillis());
+        }
+        result.setResultContent(content);
+        result.setAiAttempts(attempts);
+        result.setAiStatus(aiStatus);
+    }
+
+    /**
+     * Call AI suggestion API with log information
+     */
+    private String callAiSuggestionApi(String aiContext, Deadline deadline) throws IOException {
+        // Construct API URL with query parameter using configuration
+        String apiUrl = aiSuggestionUrl + "?systemCode=" + aiSuggestionSystemCode;
+        
+        // Create request body using configuration parameters, with the trimmed context as query condition
+        JSONObject querySource = new JSONObject(true);
+        querySource.put("dataSetId", aiSuggestionDataSetId);
+        querySource.put("centerIds", Collections.singletonList(4343));
+        querySource.put("dataSetAlias", null);
+        querySource.put("appId", aiSuggestionAppId);
+        JSONObject options = new JSONObject(true);
+        options.put("sortBy", Collections.singletonList(Collections.singletonMap("@rownumber", "asc")));
+        options.put("size", aiSuggestionSize);
+        options.put("remark", aiSuggestionRemark);
+        options.put("format", "std");
+        options.put("highlight", false);
+        options.put("trackTotalHits", false);
+        JSONObject request = new JSONObject(true);
+        request.put("queryCondiion", aiContext);
+        request.put("querySource", Collections.singletonList(querySource));
+        request.put("indexPrefix", aiSuggestionIndexPrefix);
+        request.put("options", options);
+        request.put("time_zone", "+8:00");
+        String requestBody = JSON.toJSONString(request, SerializerFeature.WriteMapNullValue);
+        
+        // Use HttpURLConnection to handle text/event-stream response
+        URL url = new URL(apiUrl);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setDoOutput(true);
+        conn.setConnectTimeout(deadline.timeoutMillis(connectTimeoutMs));
+        conn.setReadTimeout(deadline.timeoutMillis(readTimeoutMs));
+        
+        try {
+            // Register the connection so that cancelling the analysis can disconnect a blocked read
+            CallAbortScope.register(conn);
+
+            // Write request body
+            conn.getOutputStream().write(requestBody.getBytes(StandardCharsets.UTF_8));
+            
+            // Read text/event-stream response; the read timeout only bounds each read, so check the deadline per line
+            StringBuilder responseBuilder = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    responseBuilder.append(line).append("\n");
+                    deadline.check();
+                }
+            }
+            return responseBuilder.toString();
+        } finally {
+            CallAbortScope.unregister(conn);
+            conn.disconnect();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.entity.AnalysisBatch;
+import com.trae.loganalysis.entity.AnalysisTask;
+import com.trae.loganalysis.entity.UploadFile;
+import com.trae.loganalysis.model.BatchProgress;
+import com.trae.loganalysis.model.TaskStatusCount;
+import com.trae.loganalysis.repository.AnalysisBatchRepository;
+import com.trae.loganalysis.repository.AnalysisTaskRepository;
+import com.trae.loganalysis.repository.UploadFileRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 批量分析服务：一次启动多个文件的分析。文件在后台逐个创建任务，
+ * 之后与单独启动的文件一样由AnalysisTaskScheduler在全局并发和速率预算内公平调度
+ */
+@Service
+public class AnalysisBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisBatchService.class);
+
+    // 处于这些状态的文件尚未结束分析
+    private static final Set<String> ACTIVE_FILE_STATUSES = new HashSet<>(
+            Arrays.asList("UPLOADED", "PREPARING", "ANALYZING", "PAUSED"));
+
+    // 已结束的任务状态
+    private static final Set<String> FINISHED_TASK_STATUSES = new HashSet<>(Arrays.asList(
+            AnalysisTask.STATUS_SUCCESS, AnalysisTask.STATUS_FAILED,
+            AnalysisTask.STATUS_TIMED_OUT, AnalysisTask.STATUS_CANCELLED));
+
+    // 每条加入批量的更新语句绑定的文件ID数，不超过SQLite的参数个数上限
+    private static final int ASSIGN_CHUNK_SIZE = 500;
+
+    private final AnalysisBatchRepository analysisBatchRepository;
+    private final UploadFileRepository uploadFileRepository;
+    private final AnalysisTaskRepository analysisTaskRepository;
+    private final FileAnalysisService fileAnalysisService;
+    private final TransactionTemplate transactionTemplate;
+
+    // 逐个启动批量中的文件，同一时刻只为一个文件创建任务
+    private ExecutorService batchExecutor;
+
+    public AnalysisBatchService(AnalysisBatchRepository analysisBatchRepository,
+                                UploadFileRepository uploadFileRepository,
+                                AnalysisTaskRepository analysisTaskRepository,
+                                FileAnalysisService fileAnalysisService,
+                                TransactionTemplate transactionTemplate) {
+        this.analysisBatchRepository = analysisBatchRepository;
+        this.uploadFileRepository = uploadFileRepository;
+        this.analysisTaskRepository = analysisTaskRepository;
+        this.fileAnalysisService = fileAnalysisService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        batchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * 应用启动后恢复创建任务中断的文件，并继续启动上次未启动完的批量分析
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeBatches() {
+        reopenRecoveredBatches();
+        for (AnalysisBatch batch : analysisBatchRepository.findByStatus(AnalysisBatch.STATUS_PREPARING)) {
+            logger.info("继续启动批量分析，批量ID: {}", batch.getId());
+            batchExecutor.execute(() -> startBatch(batch.getId()));
+        }
+    }
+
+    /**
+     * 定期恢复创建任务中断的文件（创建任务的进程已退出），并重新启动文件所在的批量分析
+     */
+    @Scheduled(initialDelayString = "${file.analysis.task.prepare-check-interval-ms:60000}",
+            fixedDelayString = "${file.analysis.task.prepare-check-interval-ms:60000}")
+    public void recoverPreparingFiles() {
+        for (Long batchId : reopenRecoveredBatches()) {
+            logger.info("重新启动批量分析中恢复的文件，批量ID: {}", batchId);
+            batchExecutor.execute(() -> startBatch(batchId));
+        }
+    }
+
+    /**
+     * 恢复创建任务中断的文件，文件所属的批量分析重新置为启动中
+     * @return 需要重新启动的批量分析ID
+     */
+    private Set<Long> reopenRecoveredBatches() {
+        Set<Long> batchIds = new HashSet<>();
+        try {
+            for (UploadFile uploadFile : fileAnalysisService.recoverStalePreparingFiles()) {
+                if (uploadFile.getBatchId() != null && batchIds.add(uploadFile.getBatchId())) {
+                    analysisBatchRepository.findById(uploadFile.getBatchId()).ifPresent(batch -> {
+                        batch.setStatus(AnalysisBatch.STATUS_PREPARING);
+                        analysisBatchRepository.save(batch);
+                    });
+                }
+            }
+        } catch (Exception e) {
+            logger.error("恢复创建任务中断的文件失败", e);
+        }
+        return batchIds;
+    }
+
+    /**
+     * 创建批量分析：选出待分析（UPLOADED）且不属于其他批量的文件，在后台逐个启动分析
+     * @param fileIds 文件ID列表（可选）
+     * @param uploadedSince 只包含该时间及之后上传的文件（可选），与文件ID列表至少指定一个
+     * @param priority 分析优先级（可选）
+     * @param timeBudgetSeconds 每个文件的时间预算（可选，秒）
+     * @return 批量分析
+     */
+    public AnalysisBatch createBatch(List<Long> fileIds, Date uploadedSince, Integer priority, Long timeBudgetSeconds) {
+        if ((fileIds == null || fileIds.isEmpty()) && uploadedSince == null) {
+            throw new IllegalArgumentException("Either fileIds or uploadedSince must be specified");
+        }
+        if (timeBudgetSeconds != null && timeBudgetSeconds <= 0) {
+            throw new IllegalArgumentException("timeBudgetSeconds must be positive: " + timeBudgetSeconds);
+        }
+
+        Set<Long> requested = fileIds == null || fileIds.isEmpty() ? null : new HashSet<>(fileIds);
+        List<Long> candidates = new ArrayList<>();
+        for (UploadFile uploadFile : uploadFileRepository.findByStatus("UPLOADED")) {
+            if (uploadFile.getBatchId() != null) {
+                continue;
+            }
+            if (requested != null && !requested.contains(uploadFile.getId())) {
+                continue;
+            }
+            if (uploadedSince != null && (uploadFile.getUploadTime() == null || uploadFile.getUploadTime().before(uploadedSince))) {
+                continue;
+            }
+            candidates.add(uploadFile.getId());
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("No UPLOADED files match the batch request");
+        }
+
+        // 候选文件可能在查询之后被单独启动或加入其他批量，以条件更新加入批量，只包含实际更新的文件
+        AnalysisBatch batch = transactionTemplate.execute(status -> {
+            AnalysisBatch created = new AnalysisBatch();
+            created.setStatus(AnalysisBatch.STATUS_PREPARING);
+            created.setPriority(priority);
+            created.setTimeBudgetSeconds(timeBudgetSeconds);
+            created.setCreateTime(new Date());
+            created.setFileCount(0);
+            created = analysisBatchRepository.save(created);
+            int assigned = 0;
+            for (int from = 0; from < candidates.size(); from += ASSIGN_CHUNK_SIZE) {
+                List<Long> chunk = candidates.subList(from, Math.min(from + ASSIGN_CHUNK_SIZE, candidates.size()));
+                assigned += uploadFileRepository.assignBatchIfUploaded(created.getId(), chunk);
+            }
+            if (assigned == 0) {
+                // 回滚已创建的批量
+                throw new IllegalArgumentException("No UPLOADED files match the batch request");
+            }
+            created.setFileCount(assigned);
+            return analysisBatchRepository.save(created);
+        });
+        logger.info("批量分析已创建，批量ID: {}, 文件数: {}", batch.getId(), batch.getFileCount());
+
+        Long batchId = batch.getId();
+        batchExecutor.execute(() -> startBatch(batchId));
+        return batch;
+    }
+
+    /**
+     * 逐个启动批量中仍待分析的文件，单个文件启动失败不影响其他文件
+     * @param batchId 批量分析ID
+     */
+    private void startBatch(Long batchId) {
+        AnalysisBatch batch = analysisBatchRepository.findById(batchId).orElse(null);
+        if (batch == null) {
+            return;
+        }
+        int started = 0;
+        for (UploadFile uploadFile : uploadFileRepository.findByBatchIdAndStatusOrderByIdAsc(batchId, "UPLOADED")) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                fileAnalysisService.analyzeFile(uploadFile.getId(), batch.getPriority(), null, null,
+                        batch.getTimeBudgetSeconds());
+                started++;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                logger.warn("批量分析跳过文件，批量ID: {}, 文件ID: {}, {}", batchId, uploadFile.getId(), e.getMessage());
+            } catch (Exception e) {
+                logger.error("批量分析启动文件失败，批量ID: {}, 文件ID: {}", batchId, uploadFile.getId(), e);
+            }
+        }
+        batch.setStatus(AnalysisBatch.STATUS_STARTED);
+        analysisBatchRepository.save(batch);
+        logger.info("批量分析已全部启动，批量ID: {}, 本次启动文件数: {}", batchId, started);
+    }
+
+    /**
+     * 查询批量分析进度
+     * @param batchId 批量分析ID
+     * @return 按状态汇总的文件和任务数量
+     */
+    public BatchProgress getBatchProgress(Long batchId) {
+        AnalysisBatch batch = analysisBatchRepository.findById(batchId)
+                .orElseThrow(() -> new IllegalArgumentException("Batch not found: " + batchId));
+
+        Map<String, Long> fileCounts = new LinkedHashMap<>();
+        boolean finished = AnalysisBatch.STATUS_STARTED.equals(batch.getStatus());
+        for (TaskStatusCount count : uploadFileRepository.countByBatchIdGroupByStatus(batchId)) {
+            fileCounts.put(count.getStatus(), count.getCount());
+            if (ACTIVE_FILE_STATUSES.contains(count.getStatus())) {
+                finished = false;
+            }
+        }
+
+        Map<String, Long> taskCounts = new LinkedHashMap<>();
+        long totalTasks = 0;
+        long finishedTasks = 0;
+        for (TaskStatusCount count : analysisTaskRepository.countByBatchIdGroupByStatus(batchId)) {
+            taskCounts.put(count.getStatus(), count.getCount());
+            totalTasks += count.getCount();
+            if (FINISHED_TASK_STATUSES.contains(count.getStatus())) {
+                finishedTasks += count.getCount();
+            }
+        }
+
+        BatchProgress progress = new BatchProgress();
+        progress.setBatchId(batch.getId());
+        progress.setStatus(batch.getStatus());
+        progress.setCreateTime(batch.getCreateTime());
+        progress.setFileCount(batch.getFileCount());
+        progress.setFileStatusCounts(fileCounts);
+        progress.setTaskStatusCounts(taskCounts);
+        progress.setTotalTasks(totalTasks);
+        progress.setFinishedTasks(finishedTasks);
+        progress.setFinished(finished);
+        return progress;
+    }
+}
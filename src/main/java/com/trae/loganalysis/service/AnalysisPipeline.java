@@ -0,0 +1,185 @@
+package com.trae.loganalysis.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据行分析流水线：日志获取、源码获取与抽取、AI建议、持久化四个阶段，
+ * 每个阶段有独立的有界队列和线程池（舱壁隔离），阶段之间可以重叠执行且可单独调整容量。
+ * 下游阶段队列满时上游线程阻塞等待，形成背压；调度线程提交时不阻塞
+ */
+@Component
+public class AnalysisPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisPipeline.class);
+    private final List<Stage> stages;
+
+    public AnalysisPipeline(FileAnalysisService fileAnalysisService,
+                            @Value("${file.analysis.pipeline.log-fetch.threads:5}") int logFetchThreads,
+                            @Value("${file.analysis.pipeline.log-fetch.queue-capacity:50}") int logFetchQueueCapacity,
+                            @Value("${file.analysis.pipeline.source-fetch.threads:5}") int sourceFetchThreads,
+                            @Value("${file.analysis.pipeline.source-fetch.queue-capacity:50}") int sourceFetchQueueCapacity,
+                            @Value("${file.analysis.pipeline.ai-suggestion.threads:5}") int aiSuggestionThreads,
+                            @Value("${file.analysis.pipeline.ai-suggestion.queue-capacity:50}") int aiSuggestionQueueCapacity,
+                            @Value("${file.analysis.pipeline.persist.threads:2}") int persistThreads,
+                            @Value("${file.analysis.pipeline.persist.queue-capacity:100}") int persistQueueCapacity) {
+        this.stages = Arrays.asList(
+                new Stage("log-fetch", logFetchThreads, logFetchQueueCapacity, fileAnalysisService::fetchLog),
+                new Stage("source-fetch", sourceFetchThreads, sourceFetchQueueCapacity, fileAnalysisService::fetchSource),
+                new Stage("ai-suggestion", aiSuggestionThreads, aiSuggestionQueueCapacity, fileAnalysisService::suggest),
+                new Stage("persist", persistThreads, persistQueueCapacity, fileAnalysisService::persist));
+    }
+
+    /**
+     * 提交一个数据行进入流水线，结束时完成context.getCompletion()。
+     * 调用方是调度线程，不能阻塞：第一个阶段的队列已满时直接返回false，由调用方退回任务
+     * @param context 行分析上下文
+     * @return 是否已提交
+     * @throws RejectedExecutionException 流水线已关闭
+     */
+    boolean trySubmit(RowAnalysisContext context) {
+        return stages.get(0).submit(() -> runStage(context, 0), false);
+    }
+
+    private void execute(RowAnalysisContext context, int index) {
+        // 阶段线程之间的传递在下游队列满时阻塞等待，形成背压
+        stages.get(index).submit(() -> runStage(context, index), true);
+    }
+
+    private void runStage(RowAnalysisContext context, int index) {
+        if (context.isCancelled()) {
+            context.complete(new CancellationException("Analysis task cancelled"));
+            return;
+        }
+
+        Stage stage = stages.get(index);
+        boolean last = index == stages.size() - 1;
+        Exception error = null;
+        context.enterStage();
+        try {
+            if (!last && context.getDeadline().isExpired()) {
+                // 超出时间预算的行不再发起下游调用，以超时状态保存已获取的部分结果
+                logger.warn("数据行分析超时，阶段: {}, 任务ID: {}", stage.name, context.getTask().getId());
+                context.timeOut();
+            } else {
+                stage.step.run(context);
+            }
+        } catch (Exception e) {
+            error = e;
+        } finally {
+            context.exitStage();
+        }
+
+        // 取消时下游连接被断开，阶段中的异常都是取消导致的
+        if (context.isCancelled() || error instanceof CancellationException) {
+            context.complete(new CancellationException("Analysis task cancelled"));
+            return;
+        }
+        if (error != null) {
+            if (last) {
+                // 持久化失败交由调度器重试
+                context.complete(error);
+                return;
+            }
+            if (context.getDeadline().isExpired()) {
+                // 下游调用的超时不超过剩余时间，截止后的异常都视为超时
+                logger.warn("数据行分析超时，阶段: {}, 任务ID: {}, {}", stage.name, context.getTask().getId(), error.getMessage());
+                context.timeOut();
+            } else {
+                logger.error("数据行分析失败，阶段: {}, 任务ID: {}", stage.name, context.getTask().getId(), error);
+                context.fail(error);
+            }
+        }
+
+        if (last) {
+            context.complete(null);
+            return;
+        }
+        try {
+            // 已失败的行跳过剩余的下游调用，直接进入持久化阶段
+            execute(context, context.isFailed() ? stages.size() - 1 : index + 1);
+        } catch (RejectedExecutionException e) {
+            context.complete(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Stage stage : stages) {
+            stage.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 阶段处理逻辑
+     */
+    @FunctionalInterface
+    private interface StageStep {
+        void run(RowAnalysisContext context) throws Exception;
+    }
+
+    /**
+     * 流水线阶段：固定大小线程池 + 有界队列
+     */
+    private static class Stage {
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final StageStep step;
+
+        private Stage(String name, int threads, int queueCapacity, StageStep step) {
+            this.name = name;
+            this.step = step;
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "analysis-" + name + "-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            // 队列满时阻塞入队依赖线程已启动，预先启动全部核心线程
+            this.executor.prestartAllCoreThreads();
+        }
+
+        /**
+         * 提交到阶段线程池
+         * @param task 阶段任务
+         * @param block 队列满时是否阻塞等待
+         * @return 是否已提交，不阻塞且队列已满时返回false
+         * @throws RejectedExecutionException 阶段已关闭或等待时被中断
+         */
+        private boolean submit(Runnable task, boolean block) {
+            try {
+                executor.execute(task);
+                return true;
+            } catch (RejectedExecutionException e) {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Pipeline stage " + name + " is shut down");
+                }
+                if (!block) {
+                    return false;
+                }
+            }
+            try {
+                executor.getQueue().put(task);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for stage " + name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.config.InstanceIdentity;
+import com.trae.loganalysis.entity.AnalysisTask;
+import com.trae.loganalysis.entity.UploadFile;
+import com.trae.loganalysis.model.AnalysisStoppedEvent;
+import com.trae.loganalysis.repository.AnalysisTaskRepository;
+import com.trae.loganalysis.repository.UploadFileRepository;
+import com.trae.loganalysis.util.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分析任务调度器：定时从analysis_task表分批领取待处理任务并提交到分析流水线执行。
+ * 任务通过租约领取，多个实例共享同一数据库时可以协同处理同一个文件：
+ * 执行中的任务定期续约，实例宕机后租约过期，任务会被其他实例重新领取
+ */
+@Component
+public class AnalysisTaskScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisTaskScheduler.class);
+    private final AnalysisTaskRepository analysisTaskRepository;
+    private final UploadFileRepository uploadFileRepository;
+    private final FileAnalysisService fileAnalysisService;
+    private final AnalysisPipeline analysisPipeline;
+
+    // 当前实例ID，作为租约持有者写入任务表
+    private final String instanceId;
+
+    // 创建者权重，未配置的创建者权重为1
+    private final Map<String, Double> userWeights;
+
+    // 已领取但尚未结束的任务数
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // 各文件已领取但尚未结束的任务数，用于公平分配
+    private final Map<Long, AtomicInteger> inFlightByFile = new ConcurrentHashMap<>();
+
+    // 本实例正在执行的任务，取消或暂停时据此中断
+    private final Map<Long, RunningTask> runningTasks = new ConcurrentHashMap<>();
+
+    // 领取任务的速率限制
+    private final TokenBucket rateLimiter;
+
+    // 数据库表初始化完成前不领取任务
+    private volatile boolean ready = false;
+
+    @Value("${file.analysis.task.batch-size:20}")
+    private int batchSize;
+
+    @Value("${file.analysis.task.max-in-flight:30}")
+    private int maxInFlight;
+
+    @Value("${file.analysis.task.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${file.analysis.task.lease-duration-ms:60000}")
+    private long leaseDurationMs;
+
+    // 单个数据行的时间预算（毫秒），与文件截止时间取较早者
+    @Value("${file.analysis.deadline.row-ms:300000}")
+    private long rowBudgetMs;
+
+    public AnalysisTaskScheduler(AnalysisTaskRepository analysisTaskRepository,
+                                 UploadFileRepository uploadFileRepository,
+                                 FileAnalysisService fileAnalysisService,
+                                 AnalysisPipeline analysisPipeline,
+                                 InstanceIdentity instanceIdentity,
+                                 @Value("${file.analysis.fair.user-weights:}") String userWeights,
+                                 @Value("${file.analysis.task.max-rows-per-second:0}") double maxRowsPerSecond) {
+        this.analysisTaskRepository = analysisTaskRepository;
+        this.uploadFileRepository = uploadFileRepository;
+        this.fileAnalysisService = fileAnalysisService;
+        this.analysisPipeline = analysisPipeline;
+        this.instanceId = instanceIdentity.getId();
+        this.userWeights = parseUserWeights(userWeights);
+        this.rateLimiter = new TokenBucket(maxRowsPerSecond);
+    }
+
+    /**
+     * 应用启动完成后，释放本实例上次运行时持有的任务（仅在配置了固定实例ID时生效），
+     * 其他实例遗留的任务等待租约过期后再领取
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverTasks() {
+        logger.info("分析任务调度器启动，实例ID: {}", instanceId);
+        int recovered = analysisTaskRepository.releaseOwnedTasks(instanceId);
+        if (recovered > 0) {
+            logger.info("恢复中断的分析任务 {} 个", recovered);
+        }
+        ready = true;
+    }
+
+    /**
+     * 定时续约本实例正在执行的任务
+     */
+    @Scheduled(fixedDelayString = "${file.analysis.task.heartbeat-interval-ms:20000}")
+    public void renewLeases() {
+        if (!ready || inFlight.get() == 0) {
+            return;
+        }
+        try {
+            int renewed = analysisTaskRepository.renewLeases(instanceId, System.currentTimeMillis() + leaseDurationMs);
+            logger.debug("续约分析任务 {} 个", renewed);
+
+            timeOutOverdueTasks();
+
+            // 其他实例取消或暂停了文件分析时，同样中断本实例中的相关任务
+            for (Long fileId : new ArrayList<>(inFlightByFile.keySet())) {
+                uploadFileRepository.findById(fileId)
+                        .filter(uploadFile -> !"ANALYZING".equals(uploadFile.getStatus()))
+                        .ifPresent(uploadFile -> abortFile(fileId));
+            }
+        } catch (Exception e) {
+            logger.error("续约分析任务失败", e);
+        }
+    }
+
+    /**
+     * 定时处理租约过期且不再重试的任务，并检查相关文件是否已完成
+     */
+    @Scheduled(fixedDelayString = "${file.analysis.task.expire-check-interval-ms:30000}")
+    public void failExpiredTasks() {
+        if (!ready) {
+            return;
+        }
+        try {
+            int failed = analysisTaskRepository.failExpiredTasks(System.currentTimeMillis(), maxAttempts, new Date());
+            if (failed > 0) {
+                logger.warn("租约过期且重试次数用尽的分析任务 {} 个，已标记为失败", failed);
+            }
+            for (UploadFile uploadFile : uploadFileRepository.findByStatus("ANALYZING")) {
+                if (Deadline.at(uploadFile.getDeadlineTime()).isExpired()) {
+                    fileAnalysisService.timeOutFile(uploadFile.getId());
+                } else if (failed > 0) {
+                    fileAnalysisService.checkFileCompletion(uploadFile.getId());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("处理过期分析任务失败", e);
+        }
+    }
+
+    /**
+     * 定时领取一批待处理任务，领取数量不超过剩余的并发容量，
+     * 名额在正在分析的文件之间按创建者和优先级加权公平分配
+     */
+    @Scheduled(fixedDelayString = "${file.analysis.task.poll-interval-ms:500}")
+    public void dispatchTasks() {
+        if (!ready) {
+            return;
+        }
+        int capacity = Math.min(maxInFlight - inFlight.get(), batchSize);
+        if (capacity <= 0) {
+            return;
+        }
+        // 全局速率预算：所有文件（包括批量分析中的文件）合计每秒领取的数据行数
+        capacity = rateLimiter.tryAcquire(capacity);
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<AnalysisTask> tasks;
+        Map<Long, Deadline> fileDeadlines = new HashMap<>();
+        try {
+            // 已超出时间预算的文件不再领取任务，由failExpiredTasks结束
+            List<UploadFile> files = new ArrayList<>();
+            for (UploadFile uploadFile : uploadFileRepository.findByStatus("ANALYZING")) {
+                Deadline fileDeadline = Deadline.at(uploadFile.getDeadlineTime());
+                if (!fileDeadline.isExpired()) {
+                    files.add(uploadFile);
+                    fileDeadlines.put(uploadFile.getId(), fileDeadline);
+                }
+            }
+            tasks = claimTasksFairly(files, capacity);
+        } catch (Exception e) {
+            logger.error("领取分析任务失败", e);
+            rateLimiter.release(capacity);
+            return;
+        }
+        rateLimiter.release(capacity - tasks.size());
+        if (tasks.isEmpty()) {
+            return;
+        }
+        logger.debug("领取分析任务 {} 个", tasks.size());
+
+        int returned = 0;
+        for (AnalysisTask task : tasks) {
+            Deadline deadline = Deadline.after(rowBudgetMs)
+                    .min(fileDeadlines.getOrDefault(task.getFileId(), Deadline.none()));
+            RunningTask runningTask = new RunningTask(new RowAnalysisContext(task, deadline));
+            inFlight.incrementAndGet();
+            inFlightByFile.computeIfAbsent(task.getFileId(), id -> new AtomicInteger()).incrementAndGet();
+            runningTasks.put(task.getId(), runningTask);
+            runningTask.context.getCompletion().whenComplete((ignored, error) -> {
+                try {
+                    handleCompletion(task, error);
+                } finally {
+                    release(runningTask);
+                }
+            });
+            boolean submitted;
+            try {
+                // 本批次中已有任务因队列满被退回时，其余任务也直接退回
+                submitted = returned == 0 && analysisPipeline.trySubmit(runningTask.context);
+            } catch (Exception e) {
+                runningTask.context.complete(e);
+                continue;
+            }
+            if (!submitted) {
+                returnTask(runningTask);
+                returned++;
+            }
+        }
+        if (returned > 0) {
+            logger.warn("分析流水线队列已满，退回已领取的任务 {} 个", returned);
+            rateLimiter.release(returned);
+        }
+    }
+
+    /**
+     * 退回未能提交到流水线的任务，等待下次领取
+     */
+    private void returnTask(RunningTask runningTask) {
+        AnalysisTask task = runningTask.context.getTask();
+        try {
+            analysisTaskRepository.returnLeasedTask(task.getId(), task.getLeaseToken(), new Date());
+        } catch (Exception e) {
+            // 退回失败时任务保持运行中，租约过期后重新领取
+            logger.error("退回分析任务失败，任务ID: {}", task.getId(), e);
+        }
+        release(runningTask);
+    }
+
+    /**
+     * 文件分析被取消或暂停后，中断本实例中该文件正在执行的任务，
+     * 并发名额在阶段线程实际退出后由完成回调释放
+     */
+    @EventListener
+    public void onAnalysisStopped(AnalysisStoppedEvent event) {
+        abortFile(event.getFileId());
+    }
+
+    private void abortFile(Long fileId) {
+        int aborted = 0;
+        for (RunningTask runningTask : runningTasks.values()) {
+            if (fileId.equals(runningTask.context.getTask().getFileId())) {
+                runningTask.context.cancel();
+                aborted++;
+            }
+        }
+        if (aborted > 0) {
+            logger.info("中断文件 {} 正在执行的分析任务 {} 个", fileId, aborted);
+        }
+    }
+
+    /**
+     * 释放任务占用的并发名额，只生效一次
+     */
+    private void release(RunningTask runningTask) {
+        if (!runningTask.released.compareAndSet(false, true)) {
+            return;
+        }
+        runningTasks.remove(runningTask.context.getTask().getId());
+        inFlight.decrementAndGet();
+        inFlightByFile.computeIfPresent(runningTask.context.getTask().getFileId(),
+                (id, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    /**
+     * 下游调用的超时不超过剩余时间，正常情况下超时的行会自行结束；
+     * 仍未结束的行（如响应持续缓慢返回）先断开其下游连接，由阶段线程以超时状态保存部分结果。
+     * 到下一次检查时仍未结束的，只通过租约令牌将任务标记为超时，阶段线程之后的保存会因租约失效而丢弃。
+     * 调度线程不保存结果，避免与阶段线程并发访问上下文；并发名额在阶段线程实际退出后释放
+     */
+    private void timeOutOverdueTasks() {
+        for (RunningTask runningTask : runningTasks.values()) {
+            RowAnalysisContext context = runningTask.context;
+            if (!context.getDeadline().isExpired() || context.getCompletion().isDone()) {
+                continue;
+            }
+            AnalysisTask task = context.getTask();
+            if (!runningTask.overdue) {
+                logger.warn("分析任务超出截止时间仍未结束，断开下游连接，任务ID: {}", task.getId());
+                runningTask.overdue = true;
+                context.abortCalls();
+                continue;
+            }
+            try {
+                int updated = analysisTaskRepository.finishLeasedTask(task.getId(), task.getLeaseToken(),
+                        AnalysisTask.STATUS_TIMED_OUT, "Analysis timed out: deadline exceeded", new Date());
+                if (updated > 0) {
+                    logger.warn("分析任务超出截止时间仍未结束，标记为超时，任务ID: {}", task.getId());
+                    fileAnalysisService.checkFileCompletion(task.getFileId());
+                }
+            } catch (Exception e) {
+                logger.error("标记超时任务失败，任务ID: {}", task.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * 按公平份额领取任务：某个文件的可领取任务少于分到的名额时，剩余名额重新分配给其他文件
+     * @param files 正在分析的文件
+     * @param capacity 可领取的总数
+     * @return 已领取的任务
+     */
+    private List<AnalysisTask> claimTasksFairly(List<UploadFile> files, int capacity) {
+        List<FairShareAllocator.Candidate> candidates = new ArrayList<>();
+        for (UploadFile uploadFile : files) {
+            String user = uploadFile.getCreatedBy() != null ? uploadFile.getCreatedBy() : "anonymous";
+            int priority = uploadFile.getPriority() != null ? Math.max(uploadFile.getPriority(), 0) : 0;
+            AtomicInteger running = inFlightByFile.get(uploadFile.getId());
+            candidates.add(new FairShareAllocator.Candidate(uploadFile.getId(), user,
+                    userWeights.getOrDefault(user, 1.0), 1 + priority, running != null ? running.get() : 0));
+        }
+
+        List<AnalysisTask> claimed = new ArrayList<>();
+        int remaining = capacity;
+        while (remaining > 0 && !candidates.isEmpty()) {
+            Map<Long, Integer> allocation = FairShareAllocator.allocate(candidates, remaining);
+            Set<Long> exhausted = new HashSet<>();
+            for (Map.Entry<Long, Integer> entry : allocation.entrySet()) {
+                List<AnalysisTask> fileTasks = claimTasks(entry.getKey(), entry.getValue());
+                claimed.addAll(fileTasks);
+                remaining -= fileTasks.size();
+                if (fileTasks.size() < entry.getValue()) {
+                    exhausted.add(entry.getKey());
+                }
+            }
+            if (exhausted.isEmpty()) {
+                break;
+            }
+            candidates.removeIf(candidate -> exhausted.contains(candidate.getFileId()));
+        }
+        return claimed;
+    }
+
+    /**
+     * 领取任务：通过一条UPDATE语句原子地为文件中待处理或租约过期的任务写入租约，再按令牌取回
+     * @param fileId 文件ID
+     * @param limit 最大领取数量
+     * @return 已领取的任务
+     */
+    private List<AnalysisTask> claimTasks(Long fileId, int limit) {
+        String token = UUID.randomUUID().toString();
+        long nowMillis = System.currentTimeMillis();
+        int claimed = analysisTaskRepository.claimTasks(instanceId, token, nowMillis + leaseDurationMs,
+                new Date(nowMillis), nowMillis, maxAttempts, fileId, limit);
+        if (claimed == 0) {
+            return List.of();
+        }
+        return analysisTaskRepository.findByLeaseToken(token);
+    }
+
+    /**
+     * 解析创建者权重配置，格式为 user1:3,user2:1
+     */
+    private static Map<String, Double> parseUserWeights(String config) {
+        Map<String, Double> weights = new HashMap<>();
+        if (config == null || config.isEmpty()) {
+            return weights;
+        }
+        for (String item : config.split(",")) {
+            int idx = item.lastIndexOf(':');
+            if (idx <= 0) {
+                continue;
+            }
+            try {
+                double weight = Double.parseDouble(item.substring(idx + 1).trim());
+                if (weight > 0) {
+                    weights.put(item.substring(0, idx).trim(), weight);
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("忽略无效的创建者权重配置: {}", item);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * 流水线结束后的处理：持久化阶段出现异常时在重试次数内重新置为待处理，否则标记为失败
+     */
+    private void handleCompletion(AnalysisTask task, Throwable error) {
+        if (error == null) {
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CancellationException) {
+            logger.debug("分析任务已中断，任务ID: {}", task.getId());
+            return;
+        }
+
+        boolean retry = task.getAttempts() < maxAttempts;
+        logger.error("分析任务执行失败，任务ID: {}, 第 {} 次, {}", task.getId(), task.getAttempts(),
+                retry ? "将重试" : "不再重试", cause);
+        try {
+            analysisTaskRepository.finishLeasedTask(task.getId(), task.getLeaseToken(),
+                    retry ? AnalysisTask.STATUS_PENDING : AnalysisTask.STATUS_FAILED, cause.getMessage(), new Date());
+            fileAnalysisService.checkFileCompletion(task.getFileId());
+        } catch (Exception ex) {
+            logger.error("更新分析任务状态失败，任务ID: {}", task.getId(), ex);
+        }
+    }
+
+    /**
+     * 本实例正在执行的任务
+     */
+    private static class RunningTask {
+        private final RowAnalysisContext context;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        // 超出截止时间后已断开过下游连接，只由调度线程访问
+        private boolean overdue = false;
+
+        private RunningTask(RowAnalysisContext context) {
+            this.context = context;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.config.InstanceIdentity;
+import com.trae.loganalysis.entity.ExportJob;
+import com.trae.loganalysis.model.ExportFile;
+import com.trae.loganalysis.repository.AnalysisResultRepository;
+import com.trae.loganalysis.repository.ExportJobRepository;
+import com.trae.loganalysis.util.FileUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步导出服务：导出任务在有界线程池中后台执行，客户端通过任务ID查询进度并下载导出文件。
+ * 导出文件从导出缓存硬链接到任务目录，不受缓存淘汰影响，保留期过后自动删除。
+ * 导出任务记录提交的实例，由该实例执行并定期更新心跳，实例退出后心跳超时的任务标记为失败
+ */
+@Service
+public class ExportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    // 尚未结束的导出任务状态
+    private static final List<String> ACTIVE_STATUSES = Arrays.asList(
+            ExportJob.STATUS_PENDING, ExportJob.STATUS_RUNNING);
+
+    // 已结束、导出文件待清理的导出任务状态
+    private static final List<String> FINISHED_STATUSES = Arrays.asList(
+            ExportJob.STATUS_SUCCESS, ExportJob.STATUS_FAILED);
+
+    private final ExportJobRepository exportJobRepository;
+    private final AnalysisResultRepository analysisResultRepository;
+    private final ResultExportService resultExportService;
+    private final FileUtil fileUtil;
+
+    // 当前实例ID，作为导出任务的持有者
+    private final String instanceId;
+
+    // 执行中的导出任务已写出的结果数，任务结束后写入数据库
+    private final Map<Long, AtomicLong> runningProgress = new ConcurrentHashMap<>();
+
+    @Value("${file.upload.path}")
+    private String uploadPath;
+
+    @Value("${file.export.job.threads:2}")
+    private int threads;
+
+    @Value("${file.export.job.queue-capacity:20}")
+    private int queueCapacity;
+
+    // 导出文件的保留时间，过期后删除
+    @Value("${file.export.job.retention-ms:86400000}")
+    private long retentionMs;
+
+    // 持有实例的心跳超过该时长未更新的未结束任务视为已放弃
+    @Value("${file.export.job.abandon-ms:300000}")
+    private long abandonMs;
+
+    private ThreadPoolExecutor exportExecutor;
+
+    public ExportJobService(ExportJobRepository exportJobRepository,
+                            AnalysisResultRepository analysisResultRepository,
+                            ResultExportService resultExportService,
+                            FileUtil fileUtil,
+                            InstanceIdentity instanceIdentity) {
+        this.exportJobRepository = exportJobRepository;
+        this.analysisResultRepository = analysisResultRepository;
+        this.resultExportService = resultExportService;
+        this.fileUtil = fileUtil;
+        this.instanceId = instanceIdentity.getId();
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        exportExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "export-job-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        exportExecutor.shutdownNow();
+    }
+
+    /**
+     * 应用启动后重新执行本实例上次未完成的导出任务（仅在配置了固定实例ID时生效），
+     * 其他实例的任务由其持有实例执行，持有实例退出后等待心跳超时标记为失败
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        for (ExportJob job : exportJobRepository.findByOwnerAndStatusInOrderByIdAsc(instanceId, ACTIVE_STATUSES)) {
+            logger.info("重新执行导出任务，任务ID: {}", job.getId());
+            try {
+                execute(job);
+            } catch (IllegalStateException e) {
+                finish(job, ExportJob.STATUS_FAILED, null, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 提交导出任务；同一文件已有未结束的导出任务（包括其他实例提交的）时直接返回该任务。
+     * 判断与创建通过一条条件插入语句原子完成，并发提交只会创建一个任务
+     * @param fileId 文件ID
+     * @return 导出任务
+     */
+    public ExportJob submit(Long fileId) {
+        resultExportService.checkExportable(fileId);
+
+        long totalRows = analysisResultRepository.countByFileId(fileId);
+        ExportJob job = null;
+        // 已有的任务可能恰好在插入与查询之间结束，此时重新尝试插入
+        for (int attempt = 0; attempt < 3 && job == null; attempt++) {
+            Date now = new Date();
+            int created = exportJobRepository.insertIfNoActiveJob(fileId, totalRows, now, instanceId, now.getTime());
+            List<ExportJob> active = exportJobRepository.findByFileIdAndStatusIn(fileId, ACTIVE_STATUSES);
+            if (active.isEmpty()) {
+                continue;
+            }
+            if (created == 0) {
+                return withProgress(active.get(0));
+            }
+            job = active.get(0);
+        }
+        if (job == null) {
+            throw new IllegalStateException("Export job for file " + fileId + " changed concurrently, please retry");
+        }
+
+        try {
+            execute(job);
+        } catch (IllegalStateException e) {
+            exportJobRepository.delete(job);
+            throw e;
+        }
+        logger.info("导出任务已提交，任务ID: {}, 文件ID: {}", job.getId(), fileId);
+        return job;
+    }
+
+    /**
+     * 查询导出任务，执行中的任务带有实时进度
+     * @param jobId 导出任务ID
+     * @return 导出任务
+     */
+    public ExportJob getJob(Long jobId) {
+        ExportJob job = exportJobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Export job not found: " + jobId));
+        return withProgress(job);
+    }
+
+    /**
+     * 获取已完成导出任务的导出文件
+     * @param jobId 导出任务ID
+     * @return 导出文件
+     */
+    public File getJobFile(Long jobId) {
+        ExportJob job = getJob(jobId);
+        if (!ExportJob.STATUS_SUCCESS.equals(job.getStatus())) {
+            throw new IllegalStateException("Export job is " + job.getStatus() + ": " + jobId);
+        }
+        File file = new File(job.getFilePath());
+        if (!file.exists()) {
+            throw new IllegalStateException("Export file no longer exists: " + jobId);
+        }
+        return file;
+    }
+
+    /**
+     * 定期更新本实例持有的未结束导出任务的心跳
+     */
+    @Scheduled(fixedDelayString = "${file.export.job.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        try {
+            exportJobRepository.heartbeat(instanceId, System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.error("更新导出任务心跳失败", e);
+        }
+    }
+
+    /**
+     * 定期将持有实例已退出的导出任务标记为失败，并删除超过保留时间的导出文件，任务记录保留并标记为EXPIRED
+     */
+    @Scheduled(fixedDelayString = "${file.export.job.cleanup-interval-ms:600000}")
+    public void cleanupExpiredJobs() {
+        int abandoned = exportJobRepository.failAbandonedJobs(instanceId, System.currentTimeMillis() - abandonMs, new Date());
+        if (abandoned > 0) {
+            logger.warn("持有实例已退出的导出任务 {} 个，已标记为失败", abandoned);
+        }
+
+        Date expireBefore = new Date(System.currentTimeMillis() - retentionMs);
+        for (ExportJob job : exportJobRepository.findByStatusInAndFinishTimeBefore(FINISHED_STATUSES, expireBefore)) {
+            if (job.getFilePath() != null) {
+                try {
+                    Files.deleteIfExists(Path.of(job.getFilePath()));
+                } catch (IOException e) {
+                    logger.warn("删除过期导出文件失败，任务ID: {}, {}", job.getId(), e.getMessage());
+                    continue;
+                }
+            }
+            job.setStatus(ExportJob.STATUS_EXPIRED);
+            job.setFilePath(null);
+            exportJobRepository.save(job);
+            logger.info("导出任务已过期，导出文件已删除，任务ID: {}", job.getId());
+        }
+    }
+
+    /**
+     * 将导出任务提交到导出线程池
+     * @param job 导出任务
+     */
+    private void execute(ExportJob job) {
+        Long jobId = job.getId();
+        runningProgress.put(jobId, new AtomicLong());
+        try {
+            exportExecutor.execute(() -> runJob(jobId));
+        } catch (RejectedExecutionException e) {
+            runningProgress.remove(jobId);
+            throw new IllegalStateException("Export queue is full, please retry later");
+        }
+    }
+
+    /**
+     * 执行导出任务：生成或复用缓存中的导出文件，再硬链接到任务目录
+     * @param jobId 导出任务ID
+     */
+    private void runJob(Long jobId) {
+        ExportJob job = exportJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            runningProgress.remove(jobId);
+            return;
+        }
+        AtomicLong progress = runningProgress.computeIfAbsent(jobId, id -> new AtomicLong());
+        job.setStatus(ExportJob.STATUS_RUNNING);
+        job = exportJobRepository.save(job);
+
+        try {
+            ExportFile exportFile = resultExportService.exportAnalysisResults(job.getFileId(), progress::set);
+
+            String jobPath = uploadPath + "exports/jobs/";
+            fileUtil.createDirectory(jobPath);
+            Path jobFile = Path.of(jobPath, "export_job_" + jobId + ".xlsx");
+            linkOrCopy(Path.of(exportFile.getFilePath()), jobFile);
+
+            job.setWrittenRows(job.getTotalRows());
+            finish(job, ExportJob.STATUS_SUCCESS, jobFile.toString(), null);
+            logger.info("导出任务完成，任务ID: {}, 文件路径: {}", jobId, jobFile);
+        } catch (Exception e) {
+            logger.error("导出任务失败，任务ID: {}", jobId, e);
+            job.setWrittenRows(progress.get());
+            finish(job, ExportJob.STATUS_FAILED, null, e.getMessage());
+        } finally {
+            runningProgress.remove(jobId);
+        }
+    }
+
+    /**
+     * 硬链接导出文件，文件系统不支持硬链接时复制
+     */
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void finish(ExportJob job, String status, String filePath, String errorMessage) {
+        job.setStatus(status);
+        job.setFilePath(filePath);
+        job.setErrorMessage(errorMessage);
+        job.setFinishTime(new Date());
+        exportJobRepository.save(job);
+    }
+
+    private ExportJob withProgress(ExportJob job) {
+        AtomicLong progress = runningProgress.get(job.getId());
+        if (progress != null && ExportJob.STATUS_RUNNING.equals(job.getStatus())) {
+            job.setWrittenRows(progress.get());
+        }
+        return job;
+    }
+}
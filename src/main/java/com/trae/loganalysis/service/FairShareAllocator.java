@@ -0,0 +1,107 @@
+package com.trae.loganalysis.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 加权公平分配：先在创建者之间按权重分配并发份额，再在同一创建者的文件之间按文件权重分配。
+ * 每次把一个名额分给“已占用份额/权重”最小的创建者中“已占用份额/权重”最小的文件，
+ * 因此小文件不会被同时运行的大文件长期饿死
+ */
+public class FairShareAllocator {
+
+    private FairShareAllocator() {
+    }
+
+    /**
+     * 分配名额
+     * @param candidates 候选文件，包含当前已占用的并发数
+     * @param slots 待分配的名额数
+     * @return 文件ID与分配名额的映射
+     */
+    public static Map<Long, Integer> allocate(List<Candidate> candidates, int slots) {
+        Map<Long, Integer> allocation = new LinkedHashMap<>();
+        if (candidates.isEmpty() || slots <= 0) {
+            return allocation;
+        }
+
+        // 创建者当前负载为其所有文件已占用并发数之和
+        Map<String, Integer> userLoad = new HashMap<>();
+        Map<Long, Integer> fileLoad = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            userLoad.merge(candidate.getUser(), candidate.getInFlight(), Integer::sum);
+            fileLoad.put(candidate.getFileId(), candidate.getInFlight());
+        }
+
+        for (int i = 0; i < slots; i++) {
+            Candidate chosen = null;
+            for (Candidate candidate : candidates) {
+                if (chosen == null || compare(candidate, chosen, userLoad, fileLoad) < 0) {
+                    chosen = candidate;
+                }
+            }
+            allocation.merge(chosen.getFileId(), 1, Integer::sum);
+            userLoad.merge(chosen.getUser(), 1, Integer::sum);
+            fileLoad.merge(chosen.getFileId(), 1, Integer::sum);
+        }
+        return allocation;
+    }
+
+    private static int compare(Candidate a, Candidate b, Map<String, Integer> userLoad, Map<Long, Integer> fileLoad) {
+        if (!a.getUser().equals(b.getUser())) {
+            int byUser = Double.compare(userLoad.get(a.getUser()) / a.getUserWeight(),
+                    userLoad.get(b.getUser()) / b.getUserWeight());
+            if (byUser != 0) {
+                return byUser;
+            }
+        }
+        int byFile = Double.compare(fileLoad.get(a.getFileId()) / a.getFileWeight(),
+                fileLoad.get(b.getFileId()) / b.getFileWeight());
+        if (byFile != 0) {
+            return byFile;
+        }
+        // 份额相同时先到先得
+        return Long.compare(a.getFileId(), b.getFileId());
+    }
+
+    /**
+     * 参与分配的文件
+     */
+    public static class Candidate {
+        private final Long fileId;
+        private final String user;
+        private final double userWeight;
+        private final double fileWeight;
+        private final int inFlight;
+
+        public Candidate(Long fileId, String user, double userWeight, double fileWeight, int inFlight) {
+            this.fileId = fileId;
+            this.user = user;
+            this.userWeight = userWeight;
+            this.fileWeight = fileWeight;
+            this.inFlight = inFlight;
+        }
+
+        public Long getFileId() {
+            return fileId;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public double getUserWeight() {
+            return userWeight;
+        }
+
+        public double getFileWeight() {
+            return fileWeight;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+    }
+}
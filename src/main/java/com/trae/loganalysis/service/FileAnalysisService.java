@@ -1,46 +1,115 @@
 package com.trae.loganalysis.service;
 
-import com.alibaba.fastjson.JSONObject;
 import com.trae.loganalysis.entity.AnalysisResult;
-import com.trae.loganalysis.entity.FileData;
+import com.trae.loganalysis.entity.AnalysisTask;
 import com.trae.loganalysis.entity.UploadFile;
+import com.trae.loganalysis.model.AnalysisStoppedEvent;
+import com.trae.loganalysis.model.FileDataRowView;
+import com.trae.loganalysis.model.LogLocation;
 import com.trae.loganalysis.model.SourceCodeInfo;
+import com.trae.loganalysis.model.TaskStatusCount;
 import com.trae.loganalysis.repository.AnalysisResultRepository;
+import com.trae.loganalysis.repository.AnalysisTaskRepository;
 import com.trae.loganalysis.repository.FileDataRepository;
 import com.trae.loganalysis.repository.UploadFileRepository;
+import com.trae.loganalysis.util.Deadline;
+import com.trae.loganalysis.util.ErrorFingerprintUtil;
+import com.trae.loganalysis.util.ExportCodeFormatter;
+import com.trae.loganalysis.util.JavaMethodIndex;
+import com.trae.loganalysis.util.JsonApiClient;
+import com.trae.loganalysis.util.LogMessageParser;
+import jakarta.annotation.PostConstruct;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class FileAnalysisService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileAnalysisService.class);
+
+    // 日志分析接口的时间参数格式
+    private static final DateTimeFormatter LOG_API_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 日志分析接口响应中需要读取的字段路径
+    private static final String PATH_RET_CODE = "retCode";
+    private static final String PATH_LOG_MESSAGE = "entity.values[0].source.@message";
+
+    // Excel日期序列值的有效范围：1对应1900-01-01，2958465对应9999-12-31
+    private static final double MIN_EXCEL_SERIAL = 1;
+    private static final double MAX_EXCEL_SERIAL = 2958465;
+
+    // 超出聚类上限的错误签名合并到同一个抽样分层
+    private static final String OVERFLOW_STRATUM = "";
+
     private final UploadFileRepository uploadFileRepository;
     private final FileDataRepository fileDataRepository;
     private final AnalysisResultRepository analysisResultRepository;
-    private final RestTemplate restTemplate;
+    private final AnalysisTaskRepository analysisTaskRepository;
+    private final JsonApiClient jsonApiClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ErrorFingerprintUtil errorFingerprintUtil;
+    private final List<SourceCodeProvider> sourceCodeProviders;
+    private final AiSuggestionService aiSuggestionService;
 
-    private final ExecutorService executorService;
+    // 按类名缓存的源码方法索引，按访问顺序淘汰
+    private final Map<String, JavaMethodIndex> methodIndexCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, JavaMethodIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JavaMethodIndex> eldest) {
+                    return size() > methodIndexCacheSize;
+                }
+            });
     
+    // 创建任务时每批读取的数据行数
+    @Value("${file.analysis.task.seed-chunk-size:1000}")
+    private int seedChunkSize;
+
+    // 创建任务的进度超过该时长未更新时，视为创建任务的进程已退出
+    @Value("${file.analysis.task.prepare-timeout-ms:600000}")
+    private long prepareTimeoutMs;
+
+    // 源码方法索引缓存的最大类数
+    @Value("${file.analysis.method-index.cache-size:256}")
+    private int methodIndexCacheSize;
+
+    // 单个文件的默认时间预算（毫秒），0表示不限制
+    @Value("${file.analysis.deadline.file-ms:0}")
+    private long fileBudgetMs;
+
+    // 是否按错误签名聚类，同一聚类只分析一次
+    @Value("${file.analysis.clustering.enabled:true}")
+    private boolean clusteringEnabled;
+
+    // 单个文件最多跟踪的聚类数，超出后新签名的数据行单独分析
+    @Value("${file.analysis.clustering.max-clusters:100000}")
+    private int maxClusters;
+
+    // 每个聚类最多尝试的代表行数，代表行均失败或超时后不再提升新的代表行
+    @Value("${file.analysis.clustering.max-representatives:3}")
+    private int maxClusterRepresentatives;
+
     // API Configuration
     @Value("${api.log-analysis.url}")
     private String logAnalysisUrl;
@@ -56,46 +125,81 @@ public class FileAnalysisService {
     
     @Value("${api.log-analysis.size}")
     private int logAnalysisSize;
-    
-    // AI Suggestion Configuration
-    @Value("${api.ai-suggestion.url}")
-    private String aiSuggestionUrl;
-    
-    @Value("${api.ai-suggestion.system-code}")
-    private String aiSuggestionSystemCode;
-    
-    @Value("${api.ai-suggestion.query-params.data-set-id}")
-    private int aiSuggestionDataSetId;
-    
-    @Value("${api.ai-suggestion.query-params.app-id}")
-    private int aiSuggestionAppId;
-    
-    @Value("${api.ai-suggestion.query-params.index-prefix}")
-    private String aiSuggestionIndexPrefix;
-    
-    @Value("${api.ai-suggestion.query-params.size}")
-    private int aiSuggestionSize;
-    
-    @Value("${api.ai-suggestion.query-params.remark}")
-    private String aiSuggestionRemark;
 
+    // 作为事件时间的数据列（column1~column3），为空时查询截至当前的24小时
+    @Value("${api.log-analysis.window.time-column:}")
+    private String logWindowTimeColumn;
+
+    @Value("${api.log-analysis.window.time-pattern:yyyy-MM-dd HH:mm:ss[.SSS]}")
+    private String logWindowTimePattern;
+
+    // 事件时间之前和之后的查询分钟数
+    @Value("${api.log-analysis.window.before-minutes:30}")
+    private long logWindowBeforeMinutes;
+
+    @Value("${api.log-analysis.window.after-minutes:30}")
+    private long logWindowAfterMinutes;
+
+    private DateTimeFormatter eventTimeFormatter;
+    
     public FileAnalysisService(UploadFileRepository uploadFileRepository,
                               FileDataRepository fileDataRepository,
                               AnalysisResultRepository analysisResultRepository,
-                              RestTemplate restTemplate,
-                              @Value("${file.analysis.thread-pool-size}") int threadPoolSize) {
+                              AnalysisTaskRepository analysisTaskRepository,
+                              JsonApiClient jsonApiClient,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              ErrorFingerprintUtil errorFingerprintUtil,
+                              List<SourceCodeProvider> sourceCodeProviders,
+                              AiSuggestionService aiSuggestionService) {
         this.uploadFileRepository = uploadFileRepository;
         this.fileDataRepository = fileDataRepository;
         this.analysisResultRepository = analysisResultRepository;
-        this.restTemplate = restTemplate;
-        this.executorService = Executors.newFixedThreadPool(threadPoolSize);
+        this.analysisTaskRepository = analysisTaskRepository;
+        this.jsonApiClient = jsonApiClient;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.errorFingerprintUtil = errorFingerprintUtil;
+        this.sourceCodeProviders = sourceCodeProviders;
+        this.aiSuggestionService = aiSuggestionService;
+    }
+
+    @PostConstruct
+    public void initEventTimeFormatter() {
+        this.eventTimeFormatter = DateTimeFormatter.ofPattern(logWindowTimePattern);
     }
 
     /**
-     * 分析文件
+     * 分析文件：为每个数据行创建分析任务，由AnalysisTaskScheduler分批领取执行
      * @param fileId 文件ID
+     * @param priority 分析优先级，为空时为0
      */
-    public void analyzeFile(Long fileId) {
+    public void analyzeFile(Long fileId, Integer priority) {
+        analyzeFile(fileId, priority, null, null, null);
+    }
+
+    /**
+     * 分析文件，可按错误签名分层抽样只分析部分数据行，之后通过expandAnalysis扩展到全量分析
+     * @param fileId 文件ID
+     * @param priority 分析优先级，为空时为0
+     * @param sampleSize 抽样行数（可选）
+     * @param sampleRatio 抽样比例（可选），取值范围(0, 1]，与抽样行数不能同时指定
+     * @param timeBudgetSeconds 文件的时间预算（可选，秒），为空时使用配置的默认值
+     */
+    public void analyzeFile(Long fileId, Integer priority, Integer sampleSize, Double sampleRatio, Long timeBudgetSeconds) {
+        if (sampleSize != null && sampleRatio != null) {
+            throw new IllegalArgumentException("Only one of sampleSize and sampleRatio can be specified");
+        }
+        if (sampleSize != null && sampleSize <= 0) {
+            throw new IllegalArgumentException("sampleSize must be positive: " + sampleSize);
+        }
+        if (sampleRatio != null && (sampleRatio <= 0 || sampleRatio > 1)) {
+            throw new IllegalArgumentException("sampleRatio must be in (0, 1]: " + sampleRatio);
+        }
+        if (timeBudgetSeconds != null && timeBudgetSeconds <= 0) {
+            throw new IllegalArgumentException("timeBudgetSeconds must be positive: " + timeBudgetSeconds);
+        }
+
         // 获取文件信息
         UploadFile uploadFile = uploadFileRepository.findById(fileId)
                 .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
@@ -105,264 +209,512 @@ public class FileAnalysisService {
             throw new IllegalStateException("File is not in UPLOADED status: " + uploadFile.getStatus());
         }
 
-        // 更新状态为分析中
-        uploadFile.setStatus("ANALYZING");
-        uploadFileRepository.save(uploadFile);
+        // 创建任务期间状态为准备中，调度器只领取分析中文件的任务，避免任务未创建完就判定文件已完成。
+        // 状态切换使用条件更新，多个实例或并发请求同时启动同一文件时只有一个能创建任务
+        int filePriority = priority != null ? priority : 0;
+        Long deadlineTime = computeFileDeadline(timeBudgetSeconds != null ? timeBudgetSeconds * 1000 : fileBudgetMs);
+        Boolean started = transactionTemplate.execute(status -> {
+            if (uploadFileRepository.updateStatusIfCurrent(fileId, "UPLOADED", "PREPARING") == 0) {
+                return false;
+            }
+            uploadFileRepository.initPreparing(fileId, filePriority, deadlineTime, System.currentTimeMillis());
+            return true;
+        });
+        if (!Boolean.TRUE.equals(started)) {
+            throw new IllegalStateException("File is not in UPLOADED status: " + fileId);
+        }
 
-        // 异步执行分析
-        CompletableFuture.runAsync(() -> {
-            try {
-                // 获取文件数据
-                List<FileData> fileDataList = fileDataRepository.findByFileId(fileId);
-
-                // 批量分析数据行
-                List<CompletableFuture<AnalysisResult>> futures = fileDataList.stream()
-                        .map(fileData -> CompletableFuture.supplyAsync(
-                                () -> analyzeDataRow(fileId, fileData), executorService))
-                        .collect(Collectors.toList());
-
-                // 等待所有分析完成
-                CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                        futures.toArray(new CompletableFuture[0]));
-
-                // 收集所有分析结果
-                List<AnalysisResult> results = allFutures.thenApply(v ->
-                        futures.stream()
-                                .map(CompletableFuture::join)
-                                .collect(Collectors.toList()))
-                        .join();
-
-                // 批量保存分析结果
-                if (!results.isEmpty()) {
-                    analysisResultRepository.saveAll(results);
-                }
+        long taskCount;
+        try {
+            taskCount = createTasks(fileId, sampleSize, sampleRatio);
+        } catch (RuntimeException e) {
+            logger.error("创建分析任务失败，文件ID: {}", fileId, e);
+            uploadFileRepository.failPreparing(fileId, "Analysis failed: " + e.getMessage());
+            throw e;
+        }
+        logger.info("分析任务创建成功，文件ID: {}, 任务数: {}", fileId, taskCount);
 
-                // 更新状态为分析完成
-                uploadFile.setStatus("COMPLETED");
-            } catch (Exception e) {
-                // 更新状态为失败
-                uploadFile.setStatus("FAILED");
-                uploadFile.setErrorMessage("Analysis failed: " + e.getMessage());
-                e.printStackTrace();
-            } finally {
-                // 保存状态更新
-                uploadFileRepository.save(uploadFile);
-            }
-        }, executorService);
+        // 更新状态为分析中
+        uploadFileRepository.updateStatusIfCurrent(fileId, "PREPARING", "ANALYZING");
+
+        // 没有数据行时直接完成
+        checkFileCompletion(fileId);
     }
 
     /**
-     * 分析数据行
+     * 按ID键集分批读取数据行并创建任务，内存占用与文件大小无关
      * @param fileId 文件ID
-     * @param fileData 数据行
-     * @return 分析结果
+     * @param sampleSize 抽样行数，为空时按抽样比例计算
+     * @param sampleRatio 抽样比例，与抽样行数都为空时分析全部数据行
+     * @return 创建的任务数
      */
-    private AnalysisResult analyzeDataRow(Long fileId, FileData fileData) {
-        AnalysisResult result = new AnalysisResult();
-        result.setFileId(fileId);
-        result.setFileDataId(fileData.getId());
-        result.setAnalysisTime(new Date());
-        result.setStatus("SUCCESS");
-
-        try {
-            // Step 1: Call logAnalysis API to get log info
-            String logInfoResponse = callLogAnalysisApi(fileData.getColumn4());
-            
-            // Parse JSON response using Fastjson
-            JSONObject rootObj = JSONObject.parseObject(logInfoResponse);
-            String retCode = rootObj.getString("retCode");
-            
-            // Check if API call was successful
-            String logMessage = "";
-            if (!"0000".equals(retCode)) {
-                // API call failed, set result status to FAILED
-                logMessage  = "获取日志失败";
-            }else {
-                JSONObject entityObj = rootObj.getJSONObject("entity");
-                if (entityObj != null) {
-                    // Extract values array from entity
-                    java.util.List<JSONObject> valuesArray = entityObj.getJSONArray("values").toJavaList(JSONObject.class);
-                    if (!valuesArray.isEmpty()) {
-                        // Get first value object
-                        JSONObject firstValueObj = valuesArray.get(0);
-                        // Extract source object
-                        JSONObject sourceObj = firstValueObj.getJSONObject("source");
-                        if (sourceObj != null) {
-                            // Get @message field
-                            logMessage = sourceObj.getString("@message");
+    private long createTasks(Long fileId, Integer sampleSize, Double sampleRatio) {
+        // 各错误签名剩余的抽样名额，为空表示不抽样
+        Map<String, Long> quotas = sampleSize != null || sampleRatio != null
+                ? computeSampleQuotas(fileId, sampleSize, sampleRatio) : null;
+        long taskCount = 0;
+        long sampledCount = 0;
+        long lastId = 0;
+        // 已出现的错误签名，每个签名的第一行作为代表行执行分析，其余行等待结果分发
+        Set<String> clusters = new HashSet<>();
+        // 代表行被抽中的聚类，其余行随代表行一起获得结果
+        Set<String> sampledClusters = new HashSet<>();
+        List<FileDataRowView> chunk;
+        do {
+            chunk = fileDataRepository.findRowViewsAfterId(fileId, lastId, seedChunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            Date now = new Date();
+            List<AnalysisTask> tasks = new ArrayList<>(chunk.size());
+            for (FileDataRowView row : chunk) {
+                AnalysisTask task = createTask(fileId, row.getId(), now);
+                String fingerprint = clusteringEnabled || quotas != null
+                        ? errorFingerprintUtil.fingerprint(row.getColumn4()) : null;
+                if (clusteringEnabled) {
+                    String clusterId = fingerprint;
+                    if (clusters.contains(clusterId)) {
+                        task.setClusterId(clusterId);
+                        task.setStatus(AnalysisTask.STATUS_WAITING);
+                    } else if (clusters.size() < maxClusters) {
+                        clusters.add(clusterId);
+                        task.setClusterId(clusterId);
+                    }
+                }
+                if (quotas != null) {
+                    boolean sampled;
+                    if (AnalysisTask.STATUS_WAITING.equals(task.getStatus())) {
+                        sampled = sampledClusters.contains(task.getClusterId());
+                    } else {
+                        String stratum = quotas.containsKey(fingerprint) ? fingerprint : OVERFLOW_STRATUM;
+                        long quota = quotas.getOrDefault(stratum, 0L);
+                        sampled = quota > 0;
+                        if (sampled) {
+                            quotas.put(stratum, quota - 1);
+                            if (task.getClusterId() != null) {
+                                sampledClusters.add(task.getClusterId());
+                            }
                         }
                     }
+                    task.setSampled(sampled);
+                    if (sampled) {
+                        sampledCount++;
+                    } else {
+                        task.setStatus(AnalysisTask.STATUS_DEFERRED);
+                    }
                 }
+                tasks.add(task);
             }
-            result.setLogInfo(logMessage);
-
-            // Step 2: Extract method name from log message
-            String methodName = extractMethodNameFromLog(logMessage);
-            
-            // Step 3: Call source code API to get full source code
-            SourceCodeInfo sourceCodeInfo = callSourceCodeApi(fileData.getColumn4());
-            
-            // Step 4: Extract only method code from full source code
-            String methodCode = extractMethodCode(sourceCodeInfo.getSourceCode(), sourceCodeInfo.getClassName(), 
-                                            sourceCodeInfo.getLineNum(), sourceCodeInfo.getMethodName());
-            
-            // Set source code information to result
-            result.setClassName(sourceCodeInfo.getClassName());
-            result.setLineNumber(sourceCodeInfo.getLineNum());
-            result.setMethodName(sourceCodeInfo.getMethodName());
-            result.setCode(methodCode);
-            
-            // Step 5: Call AI suggestion API with method code
-            String aiSuggestionResponse = callAiSuggestionApi(methodCode);
-            result.setResultContent(aiSuggestionResponse);
-
-        } catch (Exception e) {
-            result.setStatus("FAILED");
-            result.setResultContent("Analysis failed: " + e.getMessage());
-            e.printStackTrace();
-        }
-
-        return result;
+            // 每批任务与创建进度在同一事务中保存，文件已被恢复为待分析时放弃本次创建
+            transactionTemplate.execute(status -> {
+                if (uploadFileRepository.touchPreparing(fileId, System.currentTimeMillis()) == 0) {
+                    throw new IllegalStateException("File is no longer in PREPARING status: " + fileId);
+                }
+                return analysisTaskRepository.saveAll(tasks);
+            });
+            taskCount += tasks.size();
+            lastId = chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == seedChunkSize);
+        if (clusteringEnabled) {
+            logger.info("错误签名聚类完成，文件ID: {}, 数据行: {}, 聚类数: {}", fileId, taskCount, clusters.size());
+        }
+        if (quotas != null) {
+            logger.info("分层抽样完成，文件ID: {}, 数据行: {}, 样本行: {}", fileId, taskCount, sampledCount);
+        }
+        return taskCount;
     }
-    
+
     /**
-     * Extract method name from log message
-     * Log format: [YYYY-MM-DD HH:mm:ss][ERROR][xxx-xxx][][][org.spring.conftig.updataCommon:98][Thread][td][sd]...
-     * Uses regex to find method name regardless of bracket count before or after
+     * 第一遍扫描统计各错误签名的行数，按分层抽样计算各签名的抽样名额。
+     * 超出聚类上限的签名合并为一个分层，与创建任务时的聚类规则一致
+     * @return 签名与抽样名额的映射，样本覆盖全部数据行时返回null
      */
-    private String extractMethodNameFromLog(String logMessage) {
-        if (logMessage == null || logMessage.isEmpty()) {
-            return "";
+    private Map<String, Long> computeSampleQuotas(Long fileId, Integer sampleSize, Double sampleRatio) {
+        Map<String, Long> strata = new LinkedHashMap<>();
+        long overflow = 0;
+        long total = 0;
+        long lastId = 0;
+        List<FileDataRowView> chunk;
+        do {
+            chunk = fileDataRepository.findRowViewsAfterId(fileId, lastId, seedChunkSize);
+            for (FileDataRowView row : chunk) {
+                String fingerprint = errorFingerprintUtil.fingerprint(row.getColumn4());
+                if (strata.containsKey(fingerprint) || strata.size() < maxClusters) {
+                    strata.merge(fingerprint, 1L, Long::sum);
+                } else {
+                    overflow++;
+                }
+                total++;
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == seedChunkSize);
+        if (overflow > 0) {
+            strata.put(OVERFLOW_STRATUM, overflow);
         }
-        
-        // Regex pattern to match [fully.qualified.Class.method:lineNumber]
-        // Looks for content like [org.spring.conftig.updataCommon:98] and extracts method name
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\[([\\w.]+:[\\d]+)\\]");
-        java.util.regex.Matcher matcher = pattern.matcher(logMessage);
-        
-        if (matcher.find()) {
-            // Extract content inside brackets, e.g., "org.spring.conftig.updataCommon:98"
-            String bracketedContent = matcher.group(1);
-            // Split on colon to get class.method part and line number
-            String[] parts = bracketedContent.split(":");
-            if (parts.length > 0) {
-                String classMethodPart = parts[0];
-                // Split on dots to get all parts
-                String[] classMethodParts = classMethodPart.split("\\.");
-                if (classMethodParts.length > 0) {
-                    // The method name is last part
-                    return classMethodParts[classMethodParts.length - 1];
+
+        long target = sampleSize != null ? sampleSize : (long) Math.ceil(total * sampleRatio);
+        if (target >= total) {
+            logger.info("抽样行数不小于数据行数，分析全部数据行，文件ID: {}", fileId);
+            return null;
+        }
+        return StratifiedSampler.allocate(strata, target);
+    }
+
+    private AnalysisTask createTask(Long fileId, Long fileDataId, Date now) {
+        AnalysisTask task = new AnalysisTask();
+        task.setFileId(fileId);
+        task.setFileDataId(fileDataId);
+        task.setStage(AnalysisTask.STAGE_ROW_ANALYSIS);
+        task.setStatus(AnalysisTask.STATUS_PENDING);
+        task.setAttempts(0);
+        task.setCreateTime(now);
+        task.setUpdateTime(now);
+        return task;
+    }
+
+    /**
+     * 恢复创建任务中断的文件：创建任务的进程退出后文件停留在准备中，调度器不会领取其任务，
+     * 创建进度超时后删除已创建的部分任务并将文件恢复为待分析，可以重新启动分析。
+     * 聚类和抽样状态只保存在创建任务的进程内存中，因此不从中断处继续创建
+     * @return 恢复的文件
+     */
+    public List<UploadFile> recoverStalePreparingFiles() {
+        long staleBefore = System.currentTimeMillis() - prepareTimeoutMs;
+        List<UploadFile> recovered = new ArrayList<>();
+        for (UploadFile uploadFile : uploadFileRepository.findByStatus("PREPARING")) {
+            Integer deleted = transactionTemplate.execute(status ->
+                    uploadFileRepository.resetStalePreparing(uploadFile.getId(), staleBefore) == 0
+                            ? null : analysisTaskRepository.deleteAllByFileId(uploadFile.getId()));
+            if (deleted != null) {
+                logger.warn("文件创建任务中断，已删除部分任务 {} 个并恢复为待分析，文件ID: {}", deleted, uploadFile.getId());
+                recovered.add(uploadFile);
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * 文件的所有任务都结束后，将文件状态更新为分析完成
+     * @param fileId 文件ID
+     */
+    public void checkFileCompletion(Long fileId) {
+        long remaining = analysisTaskRepository.countByFileIdAndStatusIn(fileId,
+                Arrays.asList(AnalysisTask.STATUS_PENDING, AnalysisTask.STATUS_RUNNING));
+        if (remaining > 0) {
+            return;
+        }
+        // 代表行未能分发结果的聚类仍有等待中的数据行，提升新的代表行继续分析；
+        // 代表行尝试次数已达上限的聚类不再提升，其余数据行以失败结束
+        if (analysisTaskRepository.countByFileIdAndStatusIn(fileId,
+                Collections.singletonList(AnalysisTask.STATUS_WAITING)) > 0) {
+            boolean analyzing = uploadFileRepository.findById(fileId)
+                    .map(uploadFile -> "ANALYZING".equals(uploadFile.getStatus()))
+                    .orElse(false);
+            if (!analyzing) {
+                return;
+            }
+            Date now = new Date();
+            int abandoned = analysisTaskRepository.failExhaustedClusterMembers(fileId, maxClusterRepresentatives, now);
+            int promoted = analysisTaskRepository.promoteWaitingRepresentatives(fileId, maxClusterRepresentatives, now);
+            logger.info("提升聚类代表行 {} 个，放弃代表行均已失败的聚类数据行 {} 个，文件ID: {}", promoted, abandoned, fileId);
+            if (promoted > 0) {
+                return;
+            }
+        }
+        // 抽样分析的样本已全部完成，未抽中的数据行等待扩展
+        if (analysisTaskRepository.countByFileIdAndStatusIn(fileId,
+                Collections.singletonList(AnalysisTask.STATUS_DEFERRED)) > 0) {
+            if (uploadFileRepository.updateStatusIfCurrent(fileId, "ANALYZING", "SAMPLED") > 0) {
+                logger.info("文件抽样分析完成，文件ID: {}", fileId);
+            }
+            return;
+        }
+        // 多个实例可能同时完成最后的任务，仅由状态更新成功的实例记录日志
+        if (uploadFileRepository.updateStatusIfCurrent(fileId, "ANALYZING", "COMPLETED") > 0) {
+            logger.info("文件分析完成，文件ID: {}", fileId);
+        }
+    }
+
+    /**
+     * 取消分析：不再调度该文件的任务，正在执行的任务被中断且结果丢弃
+     * @param fileId 文件ID
+     */
+    public void cancelAnalysis(Long fileId) {
+        UploadFile uploadFile = uploadFileRepository.findById(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+        String status = uploadFile.getStatus();
+        if (!"ANALYZING".equals(status) && !"PAUSED".equals(status)) {
+            throw new IllegalStateException("File is not in ANALYZING or PAUSED status: " + status);
+        }
+        if (uploadFileRepository.updateStatusIfCurrent(fileId, status, "CANCELLED") == 0) {
+            throw new IllegalStateException("File status changed concurrently: " + fileId);
+        }
+
+        int cancelled = analysisTaskRepository.updateStatusByFileId(fileId,
+                Arrays.asList(AnalysisTask.STATUS_PENDING, AnalysisTask.STATUS_RUNNING,
+                        AnalysisTask.STATUS_PAUSED, AnalysisTask.STATUS_WAITING, AnalysisTask.STATUS_DEFERRED),
+                AnalysisTask.STATUS_CANCELLED, new Date());
+        logger.info("文件分析已取消，文件ID: {}, 取消任务数: {}", fileId, cancelled);
+        eventPublisher.publishEvent(new AnalysisStoppedEvent(fileId, "CANCELLED"));
+    }
+
+    /**
+     * 暂停分析：未完成的任务（包括正在执行的）置为暂停，恢复后重新执行
+     * @param fileId 文件ID
+     */
+    public void pauseAnalysis(Long fileId) {
+        uploadFileRepository.findById(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+        if (uploadFileRepository.updateStatusIfCurrent(fileId, "ANALYZING", "PAUSED") == 0) {
+            throw new IllegalStateException("File is not in ANALYZING status: " + fileId);
+        }
+
+        int paused = analysisTaskRepository.pauseTasks(fileId, new Date());
+        logger.info("文件分析已暂停，文件ID: {}, 暂停任务数: {}", fileId, paused);
+        eventPublisher.publishEvent(new AnalysisStoppedEvent(fileId, "PAUSED"));
+    }
+
+    /**
+     * 恢复已暂停的分析
+     * @param fileId 文件ID
+     */
+    public void resumeAnalysis(Long fileId) {
+        uploadFileRepository.findById(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+        if (uploadFileRepository.updateStatusIfCurrent(fileId, "PAUSED", "ANALYZING") == 0) {
+            throw new IllegalStateException("File is not in PAUSED status: " + fileId);
+        }
+
+        int resumed = analysisTaskRepository.updateStatusByFileId(fileId,
+                Collections.singletonList(AnalysisTask.STATUS_PAUSED), AnalysisTask.STATUS_PENDING, new Date());
+        logger.info("文件分析已恢复，文件ID: {}, 恢复任务数: {}", fileId, resumed);
+        checkFileCompletion(fileId);
+    }
+
+    /**
+     * 将抽样分析扩展为全量分析：只执行未被抽中的数据行，已抽样的结果保留
+     * @param fileId 文件ID
+     */
+    public void expandAnalysis(Long fileId) {
+        UploadFile uploadFile = uploadFileRepository.findById(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+        if (!"SAMPLED".equals(uploadFile.getStatus())) {
+            throw new IllegalStateException("File is not in SAMPLED status: " + uploadFile.getStatus());
+        }
+
+        // 扩展后的全量分析重新计算时间预算
+        uploadFile.setDeadlineTime(computeFileDeadline(fileBudgetMs));
+        uploadFileRepository.save(uploadFile);
+
+        // 文件处于抽样完成状态时调度器不会领取任务，先释放任务再切换状态
+        int released = analysisTaskRepository.releaseDeferredTasks(fileId, new Date());
+        if (uploadFileRepository.updateStatusIfCurrent(fileId, "SAMPLED", "ANALYZING") == 0) {
+            throw new IllegalStateException("File status changed concurrently: " + fileId);
+        }
+        logger.info("抽样分析已扩展为全量分析，文件ID: {}, 释放任务数: {}", fileId, released);
+        checkFileCompletion(fileId);
+    }
+
+    /**
+     * 文件超出时间预算：尚未执行的数据行记为超时，正在执行的数据行受各自截止时间约束，
+     * 全部结束后文件以部分结果完成
+     * @param fileId 文件ID
+     */
+    public void timeOutFile(Long fileId) {
+        int timedOut = analysisTaskRepository.updateStatusByFileId(fileId,
+                Arrays.asList(AnalysisTask.STATUS_PENDING, AnalysisTask.STATUS_WAITING),
+                AnalysisTask.STATUS_TIMED_OUT, new Date());
+        logger.warn("文件分析超出时间预算，文件ID: {}, 超时任务数: {}", fileId, timedOut);
+        checkFileCompletion(fileId);
+    }
+
+    private static Long computeFileDeadline(long budgetMs) {
+        return budgetMs > 0 ? System.currentTimeMillis() + budgetMs : null;
+    }
+
+    /**
+     * 获取文件各状态的任务数量，用于查看分析进度和积压情况
+     * @param fileId 文件ID
+     * @return 状态与任务数的映射
+     */
+    public Map<String, Long> getTaskStatusCounts(Long fileId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TaskStatusCount count : analysisTaskRepository.countByFileIdGroupByStatus(fileId)) {
+            counts.put(count.getStatus(), count.getCount());
+        }
+        return counts;
+    }
+
+    /**
+     * 流水线阶段一：读取数据行并调用日志分析接口获取错误日志
+     * @param context 行分析上下文
+     */
+    void fetchLog(RowAnalysisContext context) throws IOException {
+        AnalysisTask task = context.getTask();
+        FileDataRowView fileData = fileDataRepository.findRowViewById(task.getFileDataId(), logWindowTimeColumn)
+                .orElseThrow(() -> new IllegalArgumentException("File data not found: " + task.getFileDataId()));
+        context.setFileData(fileData);
+
+        // Step 1: Call logAnalysis API to get log info
+        checkInterrupted();
+        Map<String, String> logInfoResponse = callLogAnalysisApi(fileData.getColumn4(), fileData.getEventTime(),
+                context.getDeadline());
+
+        // Check if API call was successful
+        String logMessage = "";
+        if (!"0000".equals(logInfoResponse.get(PATH_RET_CODE))) {
+            // API call failed, set result status to FAILED
+            logMessage  = "获取日志失败";
+        } else if (logInfoResponse.containsKey(PATH_LOG_MESSAGE)) {
+            logMessage = logInfoResponse.get(PATH_LOG_MESSAGE);
+        }
+        context.setLogMessage(logMessage);
+        context.getResult().setLogInfo(logMessage);
+    }
+
+    /**
+     * 流水线阶段二：获取源码并抽取方法源码
+     * @param context 行分析上下文
+     */
+    void fetchSource(RowAnalysisContext context) {
+        // Step 2: Extract class, method and line from log message
+        LogLocation location = LogMessageParser.parseLocation(context.getLogMessage());
+
+        // Step 3: Get full source code, from local source trees first and then the source code API
+        checkInterrupted();
+        SourceCodeInfo sourceCodeInfo = findSourceCode(context.getFileData().getColumn4(), location, context.getDeadline());
+        context.setSourceCodeInfo(sourceCodeInfo);
+
+        // Step 4: Extract only method code from full source code; the method is looked up once
+        // and both the code and its start line are derived from the same declaration
+        JavaMethodIndex.MethodDeclaration method = findMethod(sourceCodeInfo.getSourceCode(), sourceCodeInfo.getClassName(),
+                sourceCodeInfo.getLineNum(), sourceCodeInfo.getMethodName());
+        String methodCode = extractMethodCode(sourceCodeInfo.getSourceCode(), method, sourceCodeInfo.getClassName(),
+                                        sourceCodeInfo.getLineNum(), sourceCodeInfo.getMethodName());
+        context.setMethodCode(methodCode);
+
+        // Set source code information to result
+        AnalysisResult result = context.getResult();
+        result.setClassName(sourceCodeInfo.getClassName());
+        result.setLineNumber(sourceCodeInfo.getLineNum());
+        result.setMethodName(sourceCodeInfo.getMethodName());
+        result.setCode(methodCode);
+        result.setCodeStartLine(method == null ? 1 : method.getStartLine());
+        result.setExportCode(ExportCodeFormatter.format(methodCode, sourceCodeInfo.getClassName(),
+                sourceCodeInfo.getLineNum(), sourceCodeInfo.getMethodName()));
+    }
+
+    /**
+     * 流水线阶段三：调用AI建议接口
+     * @param context 行分析上下文
+     */
+    void suggest(RowAnalysisContext context) throws IOException {
+        // Step 5: Call AI suggestion API with log and method code trimmed to the context budget
+        AnalysisResult result = context.getResult();
+        if (aiSuggestionService.isLazy()) {
+            // 按需生成模式：首次读取结果时再调用AI接口
+            result.setResultContent("");
+            result.setAiStatus(AnalysisResult.AI_STATUS_PENDING);
+            return;
+        }
+        checkInterrupted();
+        String aiSuggestionResponse = aiSuggestionService.suggest(result, context.getDeadline());
+        result.setResultContent(aiSuggestionResponse);
+        result.setAiStatus(AnalysisResult.AI_STATUS_DONE);
+    }
+
+    /**
+     * 流水线阶段四：在同一事务中保存分析结果和任务状态，代表行成功时结果同时分发给同一聚类的其他数据行；
+     * 代表行失败或超时时其余数据行保持等待，由checkFileCompletion提升新的代表行，
+     * 代表行尝试次数达到上限时才将失败结果分发给其余数据行。
+     * 若执行期间租约已过期被其他实例接管，或文件分析已被取消/暂停，则丢弃本次结果
+     * @param context 行分析上下文
+     */
+    void persist(RowAnalysisContext context) {
+        AnalysisTask task = context.getTask();
+        AnalysisResult result = context.getResult();
+        boolean success = !context.isFailed();
+        String taskStatus = success ? AnalysisTask.STATUS_SUCCESS
+                : context.isTimedOut() ? AnalysisTask.STATUS_TIMED_OUT : AnalysisTask.STATUS_FAILED;
+        String lastError = success ? null : result.getResultContent();
+
+        Boolean saved = transactionTemplate.execute(status -> {
+            Date now = new Date();
+            int updated = analysisTaskRepository.finishLeasedTask(task.getId(), task.getLeaseToken(),
+                    taskStatus, lastError, now);
+            if (updated == 0) {
+                return false;
+            }
+            result.setUpdateTime(now.getTime());
+            AnalysisResult savedResult = analysisResultRepository.save(result);
+            if (task.getClusterId() != null && (success || isClusterExhausted(task))) {
+                int members = analysisResultRepository.copyToClusterMembers(task.getFileId(), task.getClusterId(), savedResult.getId());
+                analysisTaskRepository.finishClusterMembers(task.getFileId(), task.getClusterId(), taskStatus, lastError, now);
+                if (members > 0) {
+                    logger.debug("聚类结果已分发，聚类ID: {}, 数据行数: {}", task.getClusterId(), members);
                 }
             }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(saved)) {
+            logger.warn("任务租约已失效，丢弃分析结果，任务ID: {}", task.getId());
+            return;
+        }
+
+        checkFileCompletion(task.getFileId());
+    }
+
+    /**
+     * 聚类中失败或超时的代表行（包括当前行）是否已达到尝试上限
+     */
+    private boolean isClusterExhausted(AnalysisTask task) {
+        return analysisTaskRepository.countByFileIdAndClusterIdAndStatusIn(task.getFileId(), task.getClusterId(),
+                Arrays.asList(AnalysisTask.STATUS_FAILED, AnalysisTask.STATUS_TIMED_OUT)) >= maxClusterRepresentatives;
+    }
+
+    /**
+     * 任务被取消或暂停时线程会被中断，此时不再发起后续的下游调用
+     */
+    private void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Analysis task interrupted");
         }
-        
-        return "";
     }
     
     /**
-     * Call source code API to get full Java source code
-     * 调用外部接口返回对象格式为{"data":[{"className":"cn.com.handler","lineNum":150,"methodName":"socketHandler","sourceCode":"..."}]}
+     * 依次查询源码提供者（本地源码优先，未命中时调用源码接口）
      */
-    private SourceCodeInfo callSourceCodeApi(String column4) {
-        SourceCodeInfo sourceCodeInfo = new SourceCodeInfo();
-        
-        try {
-            // Create request headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            // Create request body
-            String requestBody = String.format(
-                "{\"column4\":\"%s\"}",
-                column4
-            );
-            
-            // Create HttpEntity with headers and body
-            HttpEntity<String> requestEntity = new HttpEntity<>(requestBody, headers);
-            
-            // Send POST request to source code API
-            ResponseEntity<String> response = restTemplate.exchange(
-                    "${api.source-code.url}", 
-                    HttpMethod.POST, 
-                    requestEntity, 
-                    String.class);
-            
-            // Parse JSON response
-            String responseBody = response.getBody();
-            JSONObject rootObj = JSONObject.parseObject(responseBody);
-            String retCode = rootObj.getString("retCode");
-            
-            if ("0000".equals(retCode)) {
-                JSONObject entityObj = rootObj.getJSONObject("entity");
-                if (entityObj != null) {
-                    // Extract data array
-                    com.alibaba.fastjson.JSONArray dataArray = entityObj.getJSONArray("data");
-                    if (dataArray != null && !dataArray.isEmpty()) {
-                        // Get first data object
-                        JSONObject firstDataObj = dataArray.getJSONObject(0);
-                        sourceCodeInfo.setSourceCode(firstDataObj.getString("sourceCode"));
-                        sourceCodeInfo.setClassName(firstDataObj.getString("className"));
-                        sourceCodeInfo.setMethodName(firstDataObj.getString("methodName"));
-                        sourceCodeInfo.setLineNum(firstDataObj.getInteger("lineNum"));
-                    }
-                }
+    private SourceCodeInfo findSourceCode(String column4, LogLocation location, Deadline deadline) {
+        for (SourceCodeProvider provider : sourceCodeProviders) {
+            SourceCodeInfo sourceCodeInfo = provider.findSourceCode(column4, location, deadline);
+            if (sourceCodeInfo != null) {
+                return sourceCodeInfo;
             }
-        } catch (Exception e) {
-            logger.error("调用源码API失败", e);
         }
-        
-        return sourceCodeInfo;
+        return new SourceCodeInfo();
     }
     
     /**
      * Extract only specific method code from full source code
-     * 根据methodName和lineNum将sourceCode中methodName对应的源码抽取出来
+     * 根据findMethod查找到的方法声明将sourceCode中对应的源码抽取出来，未找到方法时返回全部源码
      * 并按照指定格式输出到日志
      */
-    private String extractMethodCode(String fullSourceCode, String className, Integer lineNum, String methodName) {
-        if (fullSourceCode == null || fullSourceCode.isEmpty() || methodName == null || methodName.isEmpty()) {
+    private String extractMethodCode(String fullSourceCode, JavaMethodIndex.MethodDeclaration method,
+                                     String className, Integer lineNum, String methodName) {
+        if (fullSourceCode == null || fullSourceCode.isEmpty()) {
             return fullSourceCode;
         }
         
-        // Find method signature - simplified pattern to match method with any return type
-        String methodSignaturePattern = "\\b" + methodName + "\\s*\\([^)]*\\)\\s*\\{";
-        
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(methodSignaturePattern, java.util.regex.Pattern.MULTILINE);
-        java.util.regex.Matcher matcher = pattern.matcher(fullSourceCode);
-        
-        if (!matcher.find()) {
-            logger.warn("未找到方法签名: {}", methodName);
-            return fullSourceCode;
-        }
-        
-        int startIndex = matcher.start();
-        int braceCount = 0;
-        int endIndex = startIndex;
-        boolean insideString = false;
-        
-        // Find matching closing brace
-        for (int i = startIndex; i < fullSourceCode.length(); i++) {
-            char c = fullSourceCode.charAt(i);
-            
-            // Check for string literals to avoid counting braces inside strings
-            if (c == '"' && (i == 0 || fullSourceCode.charAt(i - 1) != '\\')) {
-                insideString = !insideString;
-            }
-            
-            if (!insideString) {
-                if (c == '{') {
-                    braceCount++;
-                } else if (c == '}') {
-                    braceCount--;
-                    if (braceCount == 0) {
-                        endIndex = i + 1;
-                        break;
-                    }
-                }
+        if (method == null) {
+            if ((methodName != null && !methodName.isEmpty()) || lineNum != null) {
+                logger.warn("未找到方法签名: {}", methodName);
             }
+            return fullSourceCode;
         }
         
-        String extractedCode = fullSourceCode.substring(startIndex, endIndex);
+        String extractedCode = fullSourceCode.substring(method.getStartOffset(), method.getEndOffset());
         
         // 按照指定格式输出到日志
         logger.info("抽取的方法源码：\n/**\n * 类名：{}\n * 方法名：{}\n * 行号：{}\n */\n{}", 
@@ -371,16 +723,51 @@ public class FileAnalysisService {
         return extractedCode;
     }
     
+    /**
+     * 在源码中查找方法：优先取包含lineNum的同名方法，同名重载按行号区分
+     * @return 方法声明，源码为空、未指定方法名和行号或未找到时返回null
+     */
+    private JavaMethodIndex.MethodDeclaration findMethod(String fullSourceCode, String className, Integer lineNum, String methodName) {
+        if (fullSourceCode == null || fullSourceCode.isEmpty()
+                || ((methodName == null || methodName.isEmpty()) && lineNum == null)) {
+            return null;
+        }
+        return getMethodIndex(className, fullSourceCode).find(methodName, lineNum);
+    }
+
+    /**
+     * 获取源码的方法索引，同一类的源码未变化时复用已建立的索引
+     */
+    private JavaMethodIndex getMethodIndex(String className, String fullSourceCode) {
+        if (className == null || className.isEmpty()) {
+            return JavaMethodIndex.build(fullSourceCode);
+        }
+        JavaMethodIndex index = methodIndexCache.get(className);
+        if (index == null || !index.matches(fullSourceCode)) {
+            index = JavaMethodIndex.build(fullSourceCode);
+            methodIndexCache.put(className, index);
+        }
+        return index;
+    }
+
     /**
      * Call log analysis API to get log information
+     * 只读取retCode和entity.values[0].source["@message"]，不解析其余的日志条目。
+     * 查询时间范围为事件时间前后的配置窗口，行中没有可解析的事件时间时退回到截至当前的24小时
      */
-    private String callLogAnalysisApi(String column4) {
-        // Create request headers
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        String logAnalysisEndTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-        Date startDate = new Date(new Date().getTime() - 24 * 60 * 60 * 1000);
-        String logAnalysisStartTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(startDate);
+    private Map<String, String> callLogAnalysisApi(String column4, String eventTime, Deadline deadline) throws IOException {
+        LocalDateTime eventDateTime = parseEventTime(eventTime);
+        LocalDateTime startTime;
+        LocalDateTime endTime;
+        if (eventDateTime != null) {
+            startTime = eventDateTime.minusMinutes(logWindowBeforeMinutes);
+            endTime = eventDateTime.plusMinutes(logWindowAfterMinutes);
+        } else {
+            endTime = LocalDateTime.now();
+            startTime = endTime.minusHours(24);
+        }
+        String logAnalysisStartTime = LOG_API_TIME_FORMATTER.format(startTime);
+        String logAnalysisEndTime = LOG_API_TIME_FORMATTER.format(endTime);
         // Create request body using configuration parameters
         String requestBody = String.format(
             "{\"systemCode\":\"%s\",\"message\":\"%s\",\"startTime\":\"%s\",\"endTime\":\"%s\",\"conditionValueMap\":{\"condition\":\"%s\",\"value\":\"%s\"},\"size\":%d}",
@@ -388,54 +775,35 @@ public class FileAnalysisService {
             logAnalysisConditionKey, logAnalysisConditionValue, logAnalysisSize
         );
         
-        // Create HttpEntity with headers and body
-        HttpEntity<String> requestEntity = new HttpEntity<>(requestBody, headers);
-        
         // Send POST request using configured URL
-        ResponseEntity<String> response = restTemplate.exchange(
-                logAnalysisUrl, 
-                HttpMethod.POST, 
-                requestEntity, 
-                String.class);
-        
-        return response.getBody();
+        return jsonApiClient.postForFields(logAnalysisUrl, requestBody, deadline, PATH_RET_CODE, PATH_LOG_MESSAGE);
     }
-    
-    
+
     /**
-     * Call AI suggestion API with log information
+     * 解析事件时间，支持配置的时间格式和Excel日期序列值
+     * @param eventTime 时间列的值
+     * @return 事件时间，为空或无法解析时返回null，调用方回退到最近24小时
      */
-    private String callAiSuggestionApi(String logMessage) throws IOException {
-        // Construct API URL with query parameter using configuration
-        String apiUrl = aiSuggestionUrl + "?systemCode=" + aiSuggestionSystemCode;
-        
-        // Create request body using configuration parameters
-        String requestBody = String.format(
-            "{\"queryCondiion\":\"\",\"querySource\":[{\"dataSetId\":%d,\"centerIds\":[4343],\"dataSetAlias\":null,\"appId\":%d}],\"indexPrefix\":\"%s\",\"options\":{\"sortBy\":[{\"@rownumber\":\"asc\"}],\"size\":%d,\"remark\":\"%s\",\"format\":\"std\",\"highlight\":false,\"trackTotalHits\":false},\"time_zone\":\"+8:00\"}",
-            aiSuggestionDataSetId, aiSuggestionAppId, aiSuggestionIndexPrefix, aiSuggestionSize, aiSuggestionRemark
-        );
-        
-        // Use HttpURLConnection to handle text/event-stream response
-        URL url = new URL(apiUrl);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        
-        // Write request body
-        conn.getOutputStream().write(requestBody.getBytes(StandardCharsets.UTF_8));
-        
-        // Read text/event-stream response
-        StringBuilder responseBuilder = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                responseBuilder.append(line).append("\n");
+    LocalDateTime parseEventTime(String eventTime) {
+        if (eventTime == null || eventTime.trim().isEmpty()) {
+            return null;
+        }
+        String value = eventTime.trim();
+        try {
+            return LocalDateTime.parse(value, eventTimeFormatter);
+        } catch (DateTimeParseException e) {
+            // 日期单元格按文本读取时为Excel日期序列值；超出序列值范围的数字（如毫秒时间戳）视为无法解析
+            try {
+                double serial = Double.parseDouble(value);
+                if (serial >= MIN_EXCEL_SERIAL && serial <= MAX_EXCEL_SERIAL) {
+                    return DateUtil.getLocalDateTime(serial);
+                }
+            } catch (NumberFormatException ignored) {
+                // 既不是配置的时间格式也不是数字
             }
+            logger.debug("无法解析事件时间: {}", value);
+            return null;
         }
-        
-        conn.disconnect();
-        return responseBuilder.toString();
     }
 
     /**
@@ -453,6 +821,9 @@ public class FileAnalysisService {
      * @return 分析结果列表
      */
     public List<AnalysisResult> getAnalysisResultsByDataId(Long fileDataId) {
-        return analysisResultRepository.findByFileDataId(fileDataId);
+        List<AnalysisResult> results = analysisResultRepository.findByFileDataId(fileDataId);
+        // 按需生成模式下，首次读取时生成AI建议
+        aiSuggestionService.fillPendingSuggestions(results);
+        return results;
     }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.model.LogLocation;
+import com.trae.loganalysis.model.SourceCodeInfo;
+import com.trae.loganalysis.util.Deadline;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 本地源码提供者：启动时索引配置的源码目录和-sources.jar，按类名直接读取本地源码，
+ * 避免每个数据行都调用一次源码接口。目录中的源码文件通过内存映射读取
+ */
+@Component
+@Order(1)
+public class LocalSourceCodeProvider implements SourceCodeProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalSourceCodeProvider.class);
+    private static final String MAVEN_SOURCE_ROOT = "src/main/java/";
+
+    // 源码目录和源码jar，逗号分隔，为空时不启用本地源码
+    @Value("${api.source-code.local-paths:}")
+    private String localPaths;
+
+    // 源码相对路径（如org/x/Foo.java）到源码位置的索引
+    private final Map<String, SourceEntry> index = new HashMap<>();
+
+    private final List<ZipFile> jars = new ArrayList<>();
+
+    /**
+     * 扫描配置的目录和jar，建立类路径索引；同一类出现多次时以先配置的为准
+     */
+    @PostConstruct
+    public void buildIndex() {
+        if (localPaths == null || localPaths.trim().isEmpty()) {
+            return;
+        }
+        for (String item : localPaths.split(",")) {
+            Path path = Paths.get(item.trim());
+            try {
+                if (Files.isDirectory(path)) {
+                    indexDirectory(path);
+                } else if (Files.isRegularFile(path) && path.getFileName().toString().endsWith(".jar")) {
+                    indexJar(path);
+                } else {
+                    logger.warn("本地源码路径不存在或不受支持: {}", path);
+                }
+            } catch (IOException e) {
+                logger.error("索引本地源码失败: {}", path, e);
+            }
+        }
+        logger.info("本地源码索引完成，源码文件数: {}", index.size());
+    }
+
+    @Override
+    public SourceCodeInfo findSourceCode(String column4, LogLocation location, Deadline deadline) {
+        if (index.isEmpty() || location == null || location.getClassName() == null || location.getClassName().isEmpty()) {
+            return null;
+        }
+
+        SourceEntry entry = lookup(location.getClassName());
+        if (entry == null) {
+            return null;
+        }
+        try {
+            SourceCodeInfo sourceCodeInfo = new SourceCodeInfo();
+            sourceCodeInfo.setClassName(location.getClassName());
+            sourceCodeInfo.setMethodName(location.getMethodName());
+            sourceCodeInfo.setLineNum(location.getLineNumber());
+            sourceCodeInfo.setSourceCode(entry.read());
+            return sourceCodeInfo;
+        } catch (IOException e) {
+            logger.error("读取本地源码失败，类名: {}", location.getClassName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 按类名查找源码；内部类（Outer$Inner或Outer.Inner）逐级退回到外部类所在的文件
+     */
+    private SourceEntry lookup(String className) {
+        int dollar = className.indexOf('$');
+        String name = dollar >= 0 ? className.substring(0, dollar) : className;
+        while (!name.isEmpty()) {
+            SourceEntry entry = index.get(name.replace('.', '/') + ".java");
+            if (entry != null) {
+                return entry;
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            name = name.substring(0, dot);
+        }
+        return null;
+    }
+
+    /**
+     * 索引源码目录：按源码根目录（src/main/java等，或目录本身）计算类路径
+     */
+    private void indexDirectory(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".java") && Files.isRegularFile(file))
+                    .forEach(file -> index.putIfAbsent(relativeSourcePath(root.relativize(file).toString()),
+                            new FileSourceEntry(file)));
+        }
+    }
+
+    private void indexJar(Path path) throws IOException {
+        ZipFile jar = new ZipFile(path.toFile());
+        jars.add(jar);
+        Enumeration<? extends ZipEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(".java")) {
+                index.putIfAbsent(entry.getName(), new JarSourceEntry(jar, entry));
+            }
+        }
+    }
+
+    /**
+     * 去掉源码根目录之前的部分，例如module/src/main/java/org/x/Foo.java -> org/x/Foo.java；
+     * 不是Maven目录结构时，配置的目录本身即为源码根目录
+     */
+    private static String relativeSourcePath(String relative) {
+        String path = relative.replace('\\', '/');
+        int root = path.indexOf(MAVEN_SOURCE_ROOT);
+        return root >= 0 ? path.substring(root + MAVEN_SOURCE_ROOT.length()) : path;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ZipFile jar : jars) {
+            try {
+                jar.close();
+            } catch (IOException e) {
+                logger.warn("关闭源码jar失败: {}", jar.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * 源码位置
+     */
+    private interface SourceEntry {
+        String read() throws IOException;
+    }
+
+    /**
+     * 目录中的源码文件，通过内存映射读取
+     */
+    private static class FileSourceEntry implements SourceEntry {
+        private final Path file;
+
+        private FileSourceEntry(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public String read() throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            }
+        }
+    }
+
+    /**
+     * 源码jar中的条目，jar条目通常是压缩存储的，通过已打开的ZipFile按条目读取
+     */
+    private static class JarSourceEntry implements SourceEntry {
+        private final ZipFile jar;
+        private final ZipEntry entry;
+
+        private JarSourceEntry(ZipFile jar, ZipEntry entry) {
+            this.jar = jar;
+            this.entry = entry;
+        }
+
+        @Override
+        public String read() throws IOException {
+            try (InputStream in = jar.getInputStream(entry)) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.model.LogLocation;
+import com.trae.loganalysis.model.SourceCodeInfo;
+import com.trae.loganalysis.util.Deadline;
+import com.trae.loganalysis.util.DeadlineExceededException;
+import com.trae.loganalysis.util.JsonApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 通过源码接口获取源码，作为本地源码未命中时的兜底
+ */
+@Component
+@Order(2)
+public class RemoteSourceCodeProvider implements SourceCodeProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemoteSourceCodeProvider.class);
+
+    // 源码接口响应中需要读取的字段路径
+    private static final String PATH_RET_CODE = "retCode";
+    private static final String PATH_SOURCE_CODE = "entity.data[0].sourceCode";
+    private static final String PATH_CLASS_NAME = "entity.data[0].className";
+    private static final String PATH_METHOD_NAME = "entity.data[0].methodName";
+    private static final String PATH_LINE_NUM = "entity.data[0].lineNum";
+
+    private final JsonApiClient jsonApiClient;
+
+    @Value("${api.source-code.url}")
+    private String sourceCodeUrl;
+
+    public RemoteSourceCodeProvider(JsonApiClient jsonApiClient) {
+        this.jsonApiClient = jsonApiClient;
+    }
+
+    /**
+     * Call source code API to get full Java source code
+     * 调用外部接口返回对象格式为{"data":[{"className":"cn.com.handler","lineNum":150,"methodName":"socketHandler","sourceCode":"..."}]}
+     */
+    @Override
+    public SourceCodeInfo findSourceCode(String column4, LogLocation location, Deadline deadline) {
+        try {
+            // Create request body
+            String requestBody = String.format(
+                "{\"column4\":\"%s\"}",
+                column4
+            );
+            
+            // Send POST request to source code API, reading only the first data entry
+            Map<String, String> response = jsonApiClient.postForFields(sourceCodeUrl, requestBody, deadline, PATH_RET_CODE,
+                    PATH_SOURCE_CODE, PATH_CLASS_NAME, PATH_METHOD_NAME, PATH_LINE_NUM);
+            
+            if ("0000".equals(response.get(PATH_RET_CODE))) {
+                SourceCodeInfo sourceCodeInfo = new SourceCodeInfo();
+                sourceCodeInfo.setSourceCode(response.get(PATH_SOURCE_CODE));
+                sourceCodeInfo.setClassName(response.get(PATH_CLASS_NAME));
+                sourceCodeInfo.setMethodName(response.get(PATH_METHOD_NAME));
+                String lineNum = response.get(PATH_LINE_NUM);
+                sourceCodeInfo.setLineNum(lineNum == null ? null : Integer.valueOf(lineNum));
+                return sourceCodeInfo;
+            }
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("调用源码API失败", e);
+        }
+        
+        return null;
+    }
+}
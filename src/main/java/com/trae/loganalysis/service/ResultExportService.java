@@ -1,256 +1,504 @@
 package com.trae.loganalysis.service;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.trae.loganalysis.entity.AnalysisResult;
-import com.trae.loganalysis.entity.FileData;
+import com.trae.loganalysis.model.ExportFile;
+import com.trae.loganalysis.model.ExportFormat;
+import com.trae.loganalysis.model.ExportRowView;
+import com.trae.loganalysis.model.ResultVersionView;
 import com.trae.loganalysis.repository.AnalysisResultRepository;
-import com.trae.loganalysis.repository.FileDataRepository;
+import com.trae.loganalysis.util.CsvUtil;
 import com.trae.loganalysis.util.ExcelUtil;
+import com.trae.loganalysis.util.ExportCodeFormatter;
 import com.trae.loganalysis.util.FileUtil;
+import com.trae.loganalysis.util.NdjsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class ResultExportService {
 
     private static final Logger logger = LoggerFactory.getLogger(ResultExportService.class);
+
+    private static final String SHEET_NAME = "Analysis Results";
+
+    // 导出前分批生成AI建议时每批的结果数
+    private static final int PENDING_AI_BATCH_SIZE = 100;
+
+    // 导出表头
+    private static final List<String> EXPORT_HEADER = Arrays.asList(
+            "column1", "column2", "column3", "column4", "错误日志", "类名", "行号", "方法名", "方法源码", "AI初步分析");
+
+    // NDJSON导出的字段名，与导出表头一一对应
+    private static final List<String> EXPORT_FIELDS = Arrays.asList(
+            "column1", "column2", "column3", "column4", "logInfo", "className", "lineNumber", "methodName", "code", "resultContent");
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    // 流式导出每页读取的导出行数
+    private static final int STREAM_PAGE_SIZE = 500;
     private final AnalysisResultRepository analysisResultRepository;
-    private final FileDataRepository fileDataRepository;
     private final ExcelUtil excelUtil;
+    private final CsvUtil csvUtil;
+    private final NdjsonUtil ndjsonUtil;
     private final FileUtil fileUtil;
+    private final AiSuggestionService aiSuggestionService;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
     @Value("${file.upload.path}")
     private String uploadPath;
 
+    // 导出目录缓存的导出文件总大小上限，0表示不限制
+    @Value("${file.export.cache.max-bytes:1073741824}")
+    private long exportCacheMaxBytes;
+
+    // 最近生成或命中的导出文件在该时间内不会被删除，保证已返回的文件路径在下载期间仍然有效
+    @Value("${file.export.cache.grace-ms:600000}")
+    private long exportCacheGraceMs;
+
     public ResultExportService(AnalysisResultRepository analysisResultRepository,
-                              FileDataRepository fileDataRepository,
                               ExcelUtil excelUtil,
-                              FileUtil fileUtil) {
+                              CsvUtil csvUtil,
+                              NdjsonUtil ndjsonUtil,
+                              FileUtil fileUtil,
+                              AiSuggestionService aiSuggestionService,
+                              PlatformTransactionManager transactionManager) {
         this.analysisResultRepository = analysisResultRepository;
-        this.fileDataRepository = fileDataRepository;
         this.excelUtil = excelUtil;
+        this.csvUtil = csvUtil;
+        this.ndjsonUtil = ndjsonUtil;
         this.fileUtil = fileUtil;
+        this.aiSuggestionService = aiSuggestionService;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
     }
 
     /**
-     * 导出分析结果为Excel文件
+     * 导出分析结果为Excel文件。导出文件按文件ID和结果版本缓存在导出目录中，
+     * 结果未变化时直接返回已生成的文件
      * @param fileId 文件ID
-     * @return 导出文件路径
+     * @return 导出文件
      */
-    public String exportAnalysisResults(Long fileId) throws IOException {
-        logger.info("开始导出分析结果，文件ID: {}", fileId);
-        
-        // 获取文件的所有分析结果
-        List<AnalysisResult> results = analysisResultRepository.findByFileId(fileId);
-        if (results.isEmpty()) {
-            logger.warn("未找到文件的分析结果，文件ID: {}", fileId);
-            throw new IllegalArgumentException("No analysis results found for file: " + fileId);
-        }
-        logger.info("找到 {} 条分析结果", results.size());
-
-        // 获取所有相关的文件数据
-        List<Long> fileDataIds = results.stream()
-                .map(AnalysisResult::getFileDataId)
-                .collect(Collectors.toList());
-        List<FileData> fileDataList = fileDataRepository.findAllById(fileDataIds);
+    public ExportFile exportAnalysisResults(Long fileId) throws IOException {
+        return exportAnalysisResults(fileId, written -> { });
+    }
 
-        // 创建数据映射
-        Map<Long, FileData> fileDataMap = fileDataList.stream()
-                .collect(Collectors.toMap(FileData::getId, fileData -> fileData));
+    /**
+     * 导出分析结果为Excel文件，并报告导出进度
+     * @param fileId 文件ID
+     * @param progress 进度回调，参数为已写出的结果数；命中缓存时不回调
+     * @return 导出文件
+     */
+    public ExportFile exportAnalysisResults(Long fileId, LongConsumer progress) throws IOException {
+        return exportAnalysisResults(fileId, ExportFormat.XLSX, false, progress);
+    }
 
-        // 创建sheet数据（所有数据在一个sheet内）
-        List<List<String>> sheetData = createSheetData(results, fileDataMap);
+    /**
+     * 按指定格式导出分析结果，并报告导出进度。不同格式分别缓存
+     * @param fileId 文件ID
+     * @param format 导出格式
+     * @param gzip 是否gzip压缩
+     * @param progress 进度回调，参数为已写出的结果数；命中缓存时不回调
+     * @return 导出文件
+     */
+    public ExportFile exportAnalysisResults(Long fileId, ExportFormat format, boolean gzip, LongConsumer progress) throws IOException {
+        checkExportable(fileId);
+        String suffix = exportSuffix(format, gzip);
 
-        // 创建sheet数据列表
-        List<ExcelUtil.SheetData> sheetDataList = new ArrayList<>();
-        sheetDataList.add(new ExcelUtil.SheetData("Analysis Results", sheetData));
+        // 按需生成模式下，导出前分批生成尚未生成的AI建议，之后再计算结果版本
+        if (aiSuggestionService.isLazy()) {
+            fillPendingSuggestions(fileId);
+        }
 
         // 创建导出目录
         String exportPath = uploadPath + "exports/";
         fileUtil.createDirectory(exportPath);
+        File exportDir = new File(exportPath);
 
-        // 生成导出文件名
-        String exportFilename = "analysis_result_" + fileId + "_" + UUID.randomUUID() + ".xlsx";
-        String exportFilePath = exportPath + exportFilename;
+        String version = getResultVersion(fileId);
+        File cachedFile = new File(exportDir, exportFilename(fileId, version, suffix));
+        if (cachedFile.exists()) {
+            // 更新修改时间，作为最近使用时间参与淘汰
+            cachedFile.setLastModified(System.currentTimeMillis());
+            logger.info("命中导出缓存，文件路径: {}", cachedFile.getPath());
+            return new ExportFile(cachedFile.getPath(), toETag(fileId, version, suffix));
+        }
 
-        // 创建Excel文件
-        excelUtil.createExcel(exportFilePath, sheetDataList);
-        logger.info("分析结果导出成功，文件路径: {}", exportFilePath);
+        // 先写入临时文件，写完后原子重命名，避免并发请求读到未写完的文件
+        File tempFile = new File(exportDir, "analysis_result_" + fileId + "_" + UUID.randomUUID() + ".tmp");
+        String writtenVersion;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            writtenVersion = writeSnapshot(fileId, out, format, gzip, progress);
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+        File exportFile = new File(exportDir, exportFilename(fileId, writtenVersion, suffix));
+        Files.move(tempFile.toPath(), exportFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("分析结果导出成功，文件路径: {}", exportFile.getPath());
 
-        return exportFilePath;
+        removeStaleExports(exportDir, fileId, writtenVersion);
+        evictExportCache(exportDir, exportFile);
+        return new ExportFile(exportFile.getPath(), toETag(fileId, writtenVersion, suffix));
     }
 
     /**
-     * 创建sheet数据（所有数据在一个sheet内，每条数据一行）
-     * @param results 分析结果列表
-     * @param fileDataMap 文件数据映射
-     * @return sheet数据
+     * 获取文件当前分析结果对应的ETag，与导出文件的ETag一致时说明结果未变化
+     * @param fileId 文件ID
+     * @param format 导出格式
+     * @param gzip 是否gzip压缩
+     * @return ETag
      */
-    private List<List<String>> createSheetData(List<AnalysisResult> results, Map<Long, FileData> fileDataMap) {
-        List<List<String>> sheetData = new ArrayList<>();
-
-        // 添加表头
-        List<String> headerRow = new ArrayList<>();
-        headerRow.add("column1");
-        headerRow.add("column2");
-        headerRow.add("column3");
-        headerRow.add("column4");
-        headerRow.add("错误日志");
-        headerRow.add("类名");
-        headerRow.add("行号");
-        headerRow.add("方法名");
-        headerRow.add("方法源码");
-        headerRow.add("AI初步分析");
-        sheetData.add(headerRow);
-
-        // 为每个分析结果创建一行数据
-        for (AnalysisResult result : results) {
-            FileData fileData = fileDataMap.get(result.getFileDataId());
-            if (fileData == null) {
-                logger.warn("未找到文件数据，fileDataId: {}", result.getFileDataId());
-                continue;
-            }
+    public String getExportETag(Long fileId, ExportFormat format, boolean gzip) {
+        return toETag(fileId, getResultVersion(fileId), exportSuffix(format, gzip));
+    }
 
-            List<String> dataRow = new ArrayList<>();
-            
-            // 添加fileData中的column1、column2、column3、column4
-            dataRow.add(fileData.getColumn1() != null ? fileData.getColumn1() : "");
-            dataRow.add(fileData.getColumn2() != null ? fileData.getColumn2() : "");
-            dataRow.add(fileData.getColumn3() != null ? fileData.getColumn3() : "");
-            dataRow.add(fileData.getColumn4() != null ? fileData.getColumn4() : "");
-            
-            // 添加analysisResult中的logInfo、className、lineNumber、methodName、code、resultContent
-            dataRow.add(result.getLogInfo() != null ? result.getLogInfo() : "");
-            dataRow.add(result.getClassName() != null ? result.getClassName() : "");
-            dataRow.add(result.getLineNumber() != null ? String.valueOf(result.getLineNumber()) : "");
-            dataRow.add(result.getMethodName() != null ? result.getMethodName() : "");
-            dataRow.add(formatCodeForExcel(result.getCode(), result.getClassName(), result.getLineNumber(), result.getMethodName()));
-            dataRow.add(result.getResultContent() != null ? result.getResultContent() : "");
-            
-            sheetData.add(dataRow);
+    /**
+     * 检查文件是否有可导出的分析结果，流式导出在开始写响应前调用，以便返回明确的错误状态
+     * @param fileId 文件ID
+     */
+    public void checkExportable(Long fileId) {
+        if (!analysisResultRepository.existsByFileId(fileId)) {
+            logger.warn("未找到文件的分析结果，文件ID: {}", fileId);
+            throw new IllegalArgumentException("No analysis results found for file: " + fileId);
         }
+    }
 
-        logger.info("创建sheet数据完成，共 {} 行数据（包含表头）", sheetData.size());
-        return sheetData;
+    /**
+     * 将分析结果以Excel格式写入输出流（所有数据在一个sheet内，每条数据一行）。
+     * 导出行按键集分页读取并流式写出，内存占用与结果数无关
+     * @param fileId 文件ID
+     * @param out 输出流，由调用方关闭
+     */
+    public void writeAnalysisResults(Long fileId, OutputStream out) throws IOException {
+        writeAnalysisResults(fileId, out, ExportFormat.XLSX, false);
     }
 
     /**
-     * 格式化code字段用于Excel导出，处理JSON数组的换行显示
-     * 根据类名、行号、方法名从源码列表中提取对应的方法源码
-     * @param code JSON字符串格式的源码列表
-     * @param className 类名
-     * @param lineNumber 行号
-     * @param methodName 方法名
-     * @return 格式化后的字符串，适合Excel显示
+     * 将分析结果按指定格式直接写入响应等慢速输出流。导出行按键集分页读取，每页一个短事务，
+     * 不在整个下载期间持有读事务和游标（长时间的读事务会阻塞WAL检查点，使WAL文件持续增长），
+     * 因此写出的内容不是同一快照。按需生成模式下AI建议按页生成，第一页生成后即开始写出。
+     * CSV和NDJSON边读边写；xlsx格式的工作簿在全部行写完后才开始输出，大文件应使用CSV或NDJSON
+     * @param fileId 文件ID
+     * @param out 输出流，由调用方关闭
+     * @param format 导出格式
+     * @param gzip 是否gzip压缩
      */
-    private String formatCodeForExcel(String code, String className, Integer lineNumber, String methodName) {
-        if (code == null || code.isEmpty()) {
-            return "";
-        }
+    public void writeAnalysisResults(Long fileId, OutputStream out, ExportFormat format, boolean gzip) throws IOException {
+        logger.info("开始流式导出分析结果，文件ID: {}, 格式: {}", fileId, exportSuffix(format, gzip));
+        long count = writeFormatted(out, format, gzip, new PagedExportRows(fileId));
+        logger.info("流式导出分析结果 {} 条，文件ID: {}", count, fileId);
+    }
 
+    /**
+     * 在同一个只读事务中读取结果版本并写出导出行，版本与写出的内容对应同一快照
+     * @param fileId 文件ID
+     * @param out 输出流，由调用方关闭
+     * @param format 导出格式
+     * @param gzip 是否gzip压缩
+     * @param progress 进度回调，参数为已写出的结果数
+     * @return 写出内容对应的结果版本
+     */
+    private String writeSnapshot(Long fileId, OutputStream out, ExportFormat format, boolean gzip,
+                                 LongConsumer progress) throws IOException {
+        logger.info("开始导出分析结果，文件ID: {}, 格式: {}", fileId, exportSuffix(format, gzip));
+
+        // 游标只在事务内有效，事务期间逐行读取并写出
         try {
-            // 解析JSON数组
-            JSONArray codeArray = JSON.parseArray(code);
-            if (codeArray == null || codeArray.isEmpty()) {
-                return "";
-            }
+            return readOnlyTransactionTemplate.execute(status -> {
+                String version = getResultVersion(fileId);
+                try (Stream<ExportRowView> rows = analysisResultRepository.streamExportRows(fileId)) {
+                    long[] written = {0};
+                    Iterator<List<String>> dataRows = rows.map(row -> {
+                        List<String> dataRow = createDataRow(row);
+                        progress.accept(++written[0]);
+                        return dataRow;
+                    }).iterator();
+                    long count = writeFormatted(out, format, gzip, dataRows);
+                    logger.info("导出分析结果 {} 条，文件ID: {}", count, fileId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return version;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-            // 如果没有提供类名、行号、方法名，直接返回所有源码
-            if (className == null || className.isEmpty() || lineNumber == null || methodName == null || methodName.isEmpty()) {
-                return formatAllCodeLines(codeArray);
-            }
+    /**
+     * 计算文件分析结果的版本：结果数、最大ID和最后写入时间
+     * @param fileId 文件ID
+     * @return 结果版本
+     */
+    private String getResultVersion(Long fileId) {
+        ResultVersionView version = analysisResultRepository.findResultVersion(fileId);
+        long count = version.getResultCount() != null ? version.getResultCount() : 0;
+        long maxId = version.getMaxId() != null ? version.getMaxId() : 0;
+        long maxUpdateTime = version.getMaxUpdateTime() != null ? version.getMaxUpdateTime() : 0;
+        return count + "-" + maxId + "-" + maxUpdateTime;
+    }
 
-            // 根据类名、行号、方法名提取对应的源码
-            String extractedCode = extractMethodCode(codeArray, className, lineNumber, methodName);
-            
-            // Excel单元格有大小限制（32,767字符），需要截断过长的内容
-            if (extractedCode.length() > 32767) {
-                extractedCode = extractedCode.substring(0, 32747) + "...(已截断，内容过长)";
-                logger.warn("code字段内容过长，已截断。原始长度: {}, 截断后长度: {}", extractedCode.length(), extractedCode.length());
-            }
+    /**
+     * 按导出格式写出数据行，需要时以gzip压缩
+     * @return 写出的数据行数
+     */
+    private long writeFormatted(OutputStream out, ExportFormat format, boolean gzip,
+                                Iterator<List<String>> dataRows) throws IOException {
+        if (!gzip) {
+            return writeRows(out, format, dataRows);
+        }
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        long count = writeRows(gzipOut, format, dataRows);
+        gzipOut.finish();
+        return count;
+    }
 
-            return extractedCode;
-        } catch (Exception e) {
-            logger.error("解析code字段JSON失败: {}", code, e);
-            // 如果解析失败，直接返回原始字符串，但也需要检查长度
-            if (code.length() > 32767) {
-                logger.warn("code字段内容过长，已截断。原始长度: {}", code.length());
-                return code.substring(0, 32747) + "...(已截断，内容过长)";
+    /**
+     * 按导出格式写出数据行
+     * @param out 输出流
+     * @param format 导出格式
+     * @param dataRows 数据行迭代器
+     * @return 写出的数据行数
+     */
+    private long writeRows(OutputStream out, ExportFormat format, Iterator<List<String>> dataRows) throws IOException {
+        switch (format) {
+            case CSV:
+                return csvUtil.writeCsv(out, EXPORT_HEADER, dataRows);
+            case NDJSON:
+                return ndjsonUtil.writeNdjson(out, EXPORT_FIELDS, dataRows);
+            default:
+                return excelUtil.writeExcel(out, SHEET_NAME, EXPORT_HEADER, dataRows);
+        }
+    }
+
+    /**
+     * 导出文件的扩展名，如xlsx、csv.gz
+     */
+    public static String exportSuffix(ExportFormat format, boolean gzip) {
+        return gzip ? format.getExtension() + ".gz" : format.getExtension();
+    }
+
+    private static String exportFilename(Long fileId, String version, String suffix) {
+        return "analysis_result_" + fileId + "_" + version + "." + suffix;
+    }
+
+    private static String toETag(Long fileId, String version, String suffix) {
+        return "\"" + fileId + "-" + version + "-" + suffix + "\"";
+    }
+
+    /**
+     * 删除同一文件比刚写出的版本更旧的各格式导出文件。并发导出时其他请求可能已写出更新的版本，
+     * 因此只删除严格更旧的版本，且不删除最近生成或命中、可能仍在下载的文件
+     * @param exportDir 导出目录
+     * @param fileId 文件ID
+     * @param version 刚写出的结果版本
+     */
+    private void removeStaleExports(File exportDir, Long fileId, String version) {
+        String prefix = "analysis_result_" + fileId + "_";
+        File[] candidates = exportDir.listFiles((dir, name) -> name.startsWith(prefix) && !name.endsWith(".tmp"));
+        if (candidates == null) {
+            return;
+        }
+        for (File file : candidates) {
+            String name = file.getName();
+            int dot = name.indexOf('.', prefix.length());
+            if (dot < 0 || !isOlderVersion(name.substring(prefix.length(), dot), version) || isInGracePeriod(file)) {
+                continue;
             }
-            return code;
+            if (file.delete()) {
+                logger.debug("删除旧版本导出文件: {}", file.getPath());
+            }
+        }
+    }
+
+    /**
+     * 判断结果版本是否严格早于另一个版本：先比较最大ID，再比较最后写入时间
+     * @param version 结果版本，格式为 结果数-最大ID-最后写入时间
+     * @param than 比较的结果版本
+     * @return 是否更旧，无法解析时返回false
+     */
+    static boolean isOlderVersion(String version, String than) {
+        long[] a = parseVersion(version);
+        long[] b = parseVersion(than);
+        if (a == null || b == null) {
+            return false;
         }
+        if (a[1] != b[1]) {
+            return a[1] < b[1];
+        }
+        return a[2] < b[2];
+    }
+
+    private static long[] parseVersion(String version) {
+        String[] parts = version.split("-");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 文件是否在最近生成或命中后的保护期内，命中缓存时会更新修改时间
+     */
+    private boolean isInGracePeriod(File file) {
+        return System.currentTimeMillis() - file.lastModified() < exportCacheGraceMs;
     }
 
     /**
-     * 格式化所有源码行
-     * @param codeArray 源码数组
-     * @return 格式化后的字符串
+     * 导出目录总大小超过上限时，按最近使用时间从旧到新删除导出文件。
+     * 刚生成的文件和保护期内的文件不删除，即使暂时超出上限
+     * @param exportDir 导出目录
+     * @param current 刚生成的导出文件
      */
-    private String formatAllCodeLines(JSONArray codeArray) {
-        StringBuilder formattedCode = new StringBuilder();
-        for (int i = 0; i < codeArray.size(); i++) {
-            String codeLine = codeArray.getString(i);
-            if (codeLine != null) {
-                if (i > 0) {
-                    formattedCode.append("\n");
+    private void evictExportCache(File exportDir, File current) {
+        if (exportCacheMaxBytes <= 0) {
+            return;
+        }
+        File[] files = exportDir.listFiles(file -> file.isFile() && file.getName().startsWith("analysis_result_")
+                && !file.getName().endsWith(".tmp"));
+        if (files == null) {
+            return;
+        }
+
+        // 从最近使用的文件开始累计大小，超出上限的较旧文件被淘汰
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        long totalBytes = 0;
+        for (File file : files) {
+            long length = file.length();
+            if (totalBytes + length > exportCacheMaxBytes && !file.equals(current) && !isInGracePeriod(file)) {
+                if (file.delete()) {
+                    logger.info("导出缓存超过上限，淘汰导出文件: {}", file.getPath());
                 }
-                formattedCode.append(codeLine);
+                continue;
             }
+            totalBytes += length;
         }
-        return formattedCode.toString();
     }
 
     /**
-     * 从源码数组中提取指定方法对应的源码
-     * @param codeArray 源码数组
-     * @param className 类名
-     * @param lineNumber 行号
-     * @param methodName 方法名
-     * @return 提取的方法源码
+     * 按ID键集分批为文件中待生成AI建议的结果生成建议
+     * @param fileId 文件ID
      */
-    private String extractMethodCode(JSONArray codeArray, String className, Integer lineNumber, String methodName) {
-        logger.debug("开始提取方法源码，类名: {}, 行号: {}, 方法名: {}", className, lineNumber, methodName);
-        
-        // 构建方法签名
-        String methodSignature = className + "." + methodName;
+    private void fillPendingSuggestions(Long fileId) {
+        long lastId = 0;
+        List<AnalysisResult> pending;
+        do {
+            pending = analysisResultRepository.findPendingAiSuggestionsByFileId(fileId, lastId, PENDING_AI_BATCH_SIZE);
+            if (pending.isEmpty()) {
+                break;
+            }
+            aiSuggestionService.fillPendingSuggestions(pending);
+            lastId = pending.get(pending.size() - 1).getId();
+        } while (pending.size() == PENDING_AI_BATCH_SIZE);
+    }
+
+    /**
+     * 创建一条导出行对应的数据行
+     * @param row 导出行
+     * @return 数据行
+     */
+    private List<String> createDataRow(ExportRowView row) {
+        List<String> dataRow = new ArrayList<>(EXPORT_HEADER.size());
         
-        // 查找包含方法签名的源码行
-        StringBuilder extractedCode = new StringBuilder();
-        boolean foundMethod = false;
+        // 添加fileData中的column1、column2、column3、column4
+        dataRow.add(row.getColumn1() != null ? row.getColumn1() : "");
+        dataRow.add(row.getColumn2() != null ? row.getColumn2() : "");
+        dataRow.add(row.getColumn3() != null ? row.getColumn3() : "");
+        dataRow.add(row.getColumn4() != null ? row.getColumn4() : "");
         
-        for (int i = 0; i < codeArray.size(); i++) {
-            String codeLine = codeArray.getString(i);
-            if (codeLine != null) {
-                // 检查是否包含方法签名
-                if (codeLine.contains(methodSignature)) {
-                    foundMethod = true;
-                    if (extractedCode.length() > 0) {
-                        extractedCode.append("\n");
+        // 添加analysisResult中的logInfo、className、lineNumber、methodName、code、resultContent
+        dataRow.add(row.getLogInfo() != null ? row.getLogInfo() : "");
+        dataRow.add(row.getClassName() != null ? row.getClassName() : "");
+        dataRow.add(row.getLineNumber() != null ? String.valueOf(row.getLineNumber()) : "");
+        dataRow.add(row.getMethodName() != null ? row.getMethodName() : "");
+        // 优先使用分析时预先计算的导出源码，旧版本数据没有该列时在导出时格式化
+        dataRow.add(row.getExportCode() != null ? row.getExportCode()
+                : ExportCodeFormatter.format(row.getCode(), row.getClassName(), row.getLineNumber(), row.getMethodName()));
+        dataRow.add(row.getResultContent() != null ? row.getResultContent() : "");
+        return dataRow;
+    }
+
+    /**
+     * 按(row_index, 结果ID)键集逐页读取导出行的迭代器，按需生成模式下先为本页生成待生成的AI建议
+     */
+    private class PagedExportRows implements Iterator<List<String>> {
+        private final Long fileId;
+        private int lastRowIndex = -1;
+        private long lastResultId = 0;
+        private Iterator<ExportRowView> page = Collections.emptyIterator();
+        private boolean exhausted = false;
+
+        private PagedExportRows(Long fileId) {
+            this.fileId = fileId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !exhausted) {
+                fetchPage();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public List<String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return createDataRow(page.next());
+        }
+
+        private void fetchPage() {
+            List<ExportRowView> rows = analysisResultRepository.findExportRowsAfter(fileId, lastRowIndex, lastResultId, STREAM_PAGE_SIZE);
+            if (aiSuggestionService.isLazy()) {
+                List<Long> pendingIds = new ArrayList<>();
+                for (ExportRowView row : rows) {
+                    if (AnalysisResult.AI_STATUS_PENDING.equals(row.getAiStatus())) {
+                        pendingIds.add(row.getResultId());
                     }
-                    extractedCode.append(codeLine);
+                }
+                if (!pendingIds.isEmpty()) {
+                    aiSuggestionService.fillPendingSuggestions(analysisResultRepository.findAllById(pendingIds));
+                    rows = analysisResultRepository.findExportRowsAfter(fileId, lastRowIndex, lastResultId, STREAM_PAGE_SIZE);
                 }
             }
+            exhausted = rows.size() < STREAM_PAGE_SIZE;
+            if (!rows.isEmpty()) {
+                ExportRowView last = rows.get(rows.size() - 1);
+                lastRowIndex = last.getRowIndex();
+                lastResultId = last.getResultId();
+            }
+            page = rows.iterator();
         }
-        
-        if (!foundMethod) {
-            logger.warn("未找到方法签名: {}，返回所有源码", methodSignature);
-            return formatAllCodeLines(codeArray);
-        }
-        
-        logger.debug("成功提取方法源码，共 {} 行", extractedCode.toString().split("\n").length);
-        return extractedCode.toString();
     }
 
     /**
@@ -0,0 +1,176 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.entity.AnalysisResult;
+import com.trae.loganalysis.entity.AnalysisTask;
+import com.trae.loganalysis.model.FileDataRowView;
+import com.trae.loganalysis.model.SourceCodeInfo;
+import com.trae.loganalysis.util.CallAbortScope;
+import com.trae.loganalysis.util.Deadline;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 单个数据行在分析流水线中流转的上下文，保存各阶段的中间结果。
+ * 同一时刻只有一个阶段的线程访问上下文，阶段之间通过线程池提交建立可见性
+ */
+class RowAnalysisContext {
+
+    private final AnalysisTask task;
+    private final AnalysisResult result;
+    private final Deadline deadline;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private final CallAbortScope abortScope = new CallAbortScope();
+
+    private volatile boolean cancelled = false;
+
+    // 正在执行当前阶段的线程，阶段之间为空
+    private Thread stageThread;
+
+    private FileDataRowView fileData;
+    private String logMessage;
+    private SourceCodeInfo sourceCodeInfo;
+    private String methodCode;
+
+    RowAnalysisContext(AnalysisTask task, Deadline deadline) {
+        this.task = task;
+        this.deadline = deadline;
+        this.result = new AnalysisResult();
+        result.setFileId(task.getFileId());
+        result.setFileDataId(task.getFileDataId());
+        result.setAnalysisTime(new Date());
+        result.setStatus("SUCCESS");
+        result.setClusterId(task.getClusterId());
+        result.setSampled(Boolean.TRUE.equals(task.getSampled()));
+    }
+
+    /**
+     * 取消：后续阶段不再执行，断开当前阶段的下游连接并中断阶段线程。
+     * 排队中的阶段仍会被执行一次，检查到取消后立即以CancellationException结束
+     */
+    void cancel() {
+        cancelled = true;
+        abortScope.abort();
+        synchronized (this) {
+            if (stageThread != null) {
+                stageThread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 断开当前阶段的下游连接但不取消：阶段线程的下游调用以异常返回，
+     * 截止时间已过时按超时处理，由流水线继续执行持久化阶段保存部分结果
+     */
+    void abortCalls() {
+        abortScope.abort();
+    }
+
+    /**
+     * 阶段线程开始执行：登记线程并绑定下游调用的中断范围
+     */
+    synchronized void enterStage() {
+        stageThread = Thread.currentThread();
+        abortScope.bind();
+    }
+
+    /**
+     * 阶段线程执行结束：解除登记，并清除取消时可能留下的中断标记，避免影响线程池中的下一个任务
+     */
+    synchronized void exitStage() {
+        stageThread = null;
+        CallAbortScope.unbind();
+        Thread.interrupted();
+    }
+
+    /**
+     * 流水线结束，error为空表示正常完成
+     */
+    void complete(Throwable error) {
+        if (error == null) {
+            completion.complete(null);
+        } else {
+            completion.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * 将行标记为分析失败，后续阶段只执行持久化
+     */
+    void fail(Exception e) {
+        result.setStatus("FAILED");
+        result.setResultContent("Analysis failed: " + e.getMessage());
+    }
+
+    /**
+     * 将行标记为超时，已获取的日志和源码作为部分结果保留，后续阶段只执行持久化
+     */
+    void timeOut() {
+        result.setStatus("TIMED_OUT");
+        result.setResultContent("Analysis timed out: deadline exceeded");
+    }
+
+    /**
+     * 是否失败或超时
+     */
+    boolean isFailed() {
+        return "FAILED".equals(result.getStatus()) || isTimedOut();
+    }
+
+    boolean isTimedOut() {
+        return "TIMED_OUT".equals(result.getStatus());
+    }
+
+    AnalysisTask getTask() {
+        return task;
+    }
+
+    AnalysisResult getResult() {
+        return result;
+    }
+
+    Deadline getDeadline() {
+        return deadline;
+    }
+
+    CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    FileDataRowView getFileData() {
+        return fileData;
+    }
+
+    void setFileData(FileDataRowView fileData) {
+        this.fileData = fileData;
+    }
+
+    String getLogMessage() {
+        return logMessage;
+    }
+
+    void setLogMessage(String logMessage) {
+        this.logMessage = logMessage;
+    }
+
+    SourceCodeInfo getSourceCodeInfo() {
+        return sourceCodeInfo;
+    }
+
+    void setSourceCodeInfo(SourceCodeInfo sourceCodeInfo) {
+        this.sourceCodeInfo = sourceCodeInfo;
+    }
+
+    String getMethodCode() {
+        return methodCode;
+    }
+
+    void setMethodCode(String methodCode) {
+        this.methodCode = methodCode;
+    }
+}
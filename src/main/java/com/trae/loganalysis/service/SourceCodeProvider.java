@@ -0,0 +1,20 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.model.LogLocation;
+import com.trae.loganalysis.model.SourceCodeInfo;
+import com.trae.loganalysis.util.Deadline;
+
+/**
+ * 源码提供者。分析时按@Order顺序依次查询，第一个返回非空结果的提供者生效
+ */
+public interface SourceCodeProvider {
+
+    /**
+     * 获取错误对应的类源码
+     * @param column4 数据行的错误描述
+     * @param location 从日志中解析出的代码位置，日志中没有时为null
+     * @param deadline 数据行的截止时间，远程调用的超时不超过剩余时间
+     * @return 源码信息，未找到时返回null
+     */
+    SourceCodeInfo findSourceCode(String column4, LogLocation location, Deadline deadline);
+}
@@ -0,0 +1,70 @@
+package com.trae.loganalysis.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层抽样配额计算：每个分层（错误签名）至少抽取一行，保证少见的错误也能出现在样本中，
+ * 剩余名额按各分层的行数比例分配（最大余数法）。样本数小于分层数时优先覆盖行数最多的分层
+ */
+public class StratifiedSampler {
+
+    private StratifiedSampler() {
+    }
+
+    /**
+     * 计算各分层的抽样配额
+     * @param strata 分层与行数的映射，行数相同时按映射的迭代顺序优先
+     * @param sampleSize 样本总行数
+     * @return 分层与抽样行数的映射，包含所有分层，未被抽中的分层配额为0
+     */
+    public static Map<String, Long> allocate(Map<String, Long> strata, long sampleSize) {
+        Map<String, Long> quotas = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : strata.entrySet()) {
+            quotas.put(entry.getKey(), 0L);
+            total += entry.getValue();
+        }
+        if (sampleSize <= 0 || total == 0) {
+            return quotas;
+        }
+        if (sampleSize >= total) {
+            quotas.putAll(strata);
+            return quotas;
+        }
+
+        // 按行数从多到少排序，排序稳定，行数相同时保持原有顺序
+        List<Map.Entry<String, Long>> ordered = new ArrayList<>(strata.entrySet());
+        ordered.removeIf(entry -> entry.getValue() <= 0);
+        ordered.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        if (sampleSize <= ordered.size()) {
+            for (int i = 0; i < sampleSize; i++) {
+                quotas.put(ordered.get(i).getKey(), 1L);
+            }
+            return quotas;
+        }
+
+        // 每个分层先分到一行，剩余名额按 (行数 - 1) 的比例分配，余数部分给小数部分最大的分层
+        long remaining = sampleSize - ordered.size();
+        long rest = total - ordered.size();
+        long assigned = 0;
+        List<Map.Entry<String, Long>> byRemainder = new ArrayList<>(ordered);
+        Map<String, Long> remainders = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : ordered) {
+            long share = remaining * (entry.getValue() - 1);
+            long extra = share / rest;
+            quotas.put(entry.getKey(), 1 + extra);
+            remainders.put(entry.getKey(), share % rest);
+            assigned += extra;
+        }
+        byRemainder.sort((a, b) -> Long.compare(remainders.get(b.getKey()), remainders.get(a.getKey())));
+        for (int i = 0; assigned < remaining; i++) {
+            String key = byRemainder.get(i).getKey();
+            quotas.put(key, quotas.get(key) + 1);
+            assigned++;
+        }
+        return quotas;
+    }
+}
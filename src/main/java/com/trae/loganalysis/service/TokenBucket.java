@@ -0,0 +1,64 @@
+package com.trae.loganalysis.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 令牌桶限速：按固定速率生成令牌，桶容量为一秒的令牌数，允许短时突发。
+ * 调度器每次领取任务前申请令牌，限制所有文件合计的下游调用速率
+ */
+public class TokenBucket {
+
+    private final double ratePerSecond;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param ratePerSecond 每秒生成的令牌数，不大于0表示不限速
+     */
+    public TokenBucket(double ratePerSecond) {
+        this(ratePerSecond, System::nanoTime);
+    }
+
+    TokenBucket(double ratePerSecond, LongSupplier nanoClock) {
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = Math.max(ratePerSecond, 1);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * 申请最多max个令牌
+     * @param max 需要的令牌数
+     * @return 实际获得的令牌数，可能为0
+     */
+    public synchronized int tryAcquire(int max) {
+        if (ratePerSecond <= 0) {
+            return max;
+        }
+        refill();
+        int granted = (int) Math.min(max, Math.floor(tokens));
+        tokens -= granted;
+        return Math.max(granted, 0);
+    }
+
+    /**
+     * 归还未使用的令牌
+     * @param count 令牌数
+     */
+    public synchronized void release(int count) {
+        if (ratePerSecond <= 0 || count <= 0) {
+            return;
+        }
+        tokens = Math.min(capacity, tokens + count);
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * ratePerSecond);
+        lastRefillNanos = now;
+    }
+}
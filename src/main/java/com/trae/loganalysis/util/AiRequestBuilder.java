@@ -0,0 +1,188 @@
+package com.trae.loganalysis.util;
+
+import java.util.Arrays;
+
+/**
+ * AI请求上下文构建：在字符预算内组装错误日志和方法源码。
+ * 超出预算时按相关性裁剪：日志保留首行和Caused by行，源码保留方法签名、报错行及其上下相邻行
+ */
+public class AiRequestBuilder {
+
+    // 日志最多占用的预算比例，日志较短时剩余预算留给源码
+    private static final double LOG_SHARE = 0.3;
+    private static final String ELLIPSIS = "...";
+    private static final String CODE_GAP = "    // ...";
+    private static final String ERROR_LINE_MARK = "    // <-- 报错行";
+
+    private final int budget;
+    private String logMessage = "";
+    private String methodCode = "";
+    private int methodStartLine = 1;
+    private Integer errorLine;
+
+    /**
+     * @param budget 上下文最大字符数
+     */
+    public AiRequestBuilder(int budget) {
+        this.budget = Math.max(budget, 0);
+    }
+
+    public AiRequestBuilder logMessage(String logMessage) {
+        this.logMessage = logMessage == null ? "" : logMessage;
+        return this;
+    }
+
+    /**
+     * @param methodCode 方法源码
+     * @param methodStartLine 方法源码第一行在源文件中的行号
+     */
+    public AiRequestBuilder methodCode(String methodCode, int methodStartLine) {
+        this.methodCode = methodCode == null ? "" : methodCode;
+        this.methodStartLine = methodStartLine;
+        return this;
+    }
+
+    /**
+     * @param errorLine 报错行在源文件中的行号，可为空
+     */
+    public AiRequestBuilder errorLine(Integer errorLine) {
+        this.errorLine = errorLine;
+        return this;
+    }
+
+    /**
+     * 组装上下文
+     * @return 不超过预算的上下文文本
+     */
+    public String build() {
+        String logHeader = "错误日志:\n";
+        String codeHeader = "\n方法源码:\n";
+        int available = Math.max(budget - logHeader.length() - codeHeader.length(), 0);
+
+        int logBudget = Math.min(logMessage.length(), (int) (available * LOG_SHARE));
+        String log = trimLog(logBudget);
+        String code = trimCode(available - log.length());
+
+        StringBuilder context = new StringBuilder(budget);
+        context.append(logHeader).append(log);
+        if (!code.isEmpty()) {
+            context.append(codeHeader).append(code);
+        }
+        return context.length() <= budget ? context.toString() : context.substring(0, budget);
+    }
+
+    /**
+     * 裁剪日志：首行优先，其次是Caused by行，再按原顺序填充其余行
+     */
+    private String trimLog(int logBudget) {
+        if (logMessage.length() <= logBudget) {
+            return logMessage;
+        }
+        String[] lines = logMessage.split("\n", -1);
+        boolean[] selected = new boolean[lines.length];
+        int[] used = {0};
+        select(lines, selected, 0, logBudget, used);
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].trim().startsWith("Caused by")) {
+                select(lines, selected, i, logBudget, used);
+            }
+        }
+        for (int i = 1; i < lines.length; i++) {
+            if (!select(lines, selected, i, logBudget, used) && !selected[i]) {
+                break;
+            }
+        }
+        if (!selected[0]) {
+            // 首行本身超出预算时只保留截断的首行
+            return truncate(lines[0], logBudget);
+        }
+        return truncate(join(lines, selected, ELLIPSIS, null), logBudget);
+    }
+
+    /**
+     * 裁剪源码：保留方法签名行和末行，从报错行开始向上下交替扩展
+     */
+    private String trimCode(int codeBudget) {
+        if (methodCode.isEmpty() || codeBudget <= 0) {
+            return "";
+        }
+        String[] lines = methodCode.split("\n", -1);
+        int target = errorLine == null ? -1 : errorLine - methodStartLine;
+        if (target >= lines.length) {
+            target = -1;
+        }
+        if (methodCode.length() + (target >= 0 ? ERROR_LINE_MARK.length() : 0) <= codeBudget) {
+            boolean[] all = new boolean[lines.length];
+            Arrays.fill(all, true);
+            return join(lines, all, CODE_GAP, target);
+        }
+
+        boolean[] selected = new boolean[lines.length];
+        // 为省略标记和报错行标记预留空间
+        int[] used = {2 * (CODE_GAP.length() + 1) + ERROR_LINE_MARK.length()};
+        select(lines, selected, 0, codeBudget, used);
+        select(lines, selected, lines.length - 1, codeBudget, used);
+        int center = Math.max(target, 0);
+        boolean upOpen = true;
+        boolean downOpen = true;
+        select(lines, selected, center, codeBudget, used);
+        for (int distance = 1; upOpen || downOpen; distance++) {
+            if (downOpen) {
+                int below = center + distance;
+                downOpen = below < lines.length && (selected[below] || select(lines, selected, below, codeBudget, used));
+            }
+            if (upOpen) {
+                int above = center - distance;
+                upOpen = above >= 0 && (selected[above] || select(lines, selected, above, codeBudget, used));
+            }
+        }
+        return truncate(join(lines, selected, CODE_GAP, target), codeBudget);
+    }
+
+    private static String truncate(String text, int limit) {
+        if (text.length() <= limit) {
+            return text;
+        }
+        return limit > ELLIPSIS.length() ? text.substring(0, limit - ELLIPSIS.length()) + ELLIPSIS : "";
+    }
+
+    private static boolean select(String[] lines, boolean[] selected, int index, int limit, int[] used) {
+        if (selected[index]) {
+            return true;
+        }
+        int cost = lines[index].length() + 1;
+        if (used[0] + cost > limit) {
+            return false;
+        }
+        selected[index] = true;
+        used[0] += cost;
+        return true;
+    }
+
+    private static String join(String[] lines, boolean[] selected, String gap, Integer markedLine) {
+        StringBuilder builder = new StringBuilder();
+        boolean skipping = false;
+        for (int i = 0; i < lines.length; i++) {
+            if (!selected[i]) {
+                skipping = true;
+                continue;
+            }
+            if (skipping) {
+                builder.append(gap).append('\n');
+                skipping = false;
+            }
+            builder.append(lines[i]);
+            if (markedLine != null && i == markedLine) {
+                builder.append(ERROR_LINE_MARK);
+            }
+            builder.append('\n');
+        }
+        if (skipping) {
+            builder.append(gap).append('\n');
+        }
+        if (builder.length() > 0) {
+            builder.setLength(builder.length() - 1);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.trae.loganalysis.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 下游调用的中断范围：流水线阶段执行期间绑定到当前线程，阶段内发起的HTTP连接登记在该范围中。
+ * HttpURLConnection的阻塞读取不响应线程中断，取消时通过断开已登记的连接让阶段线程立即返回
+ */
+public class CallAbortScope {
+
+    private static final ThreadLocal<CallAbortScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<HttpURLConnection> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean aborted = false;
+
+    /**
+     * 将范围绑定到当前线程
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * 解除当前线程绑定的范围
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 登记当前线程打开的连接，当前线程未绑定范围时忽略
+     * @param connection 连接
+     * @throws InterruptedIOException 范围已被中断，连接已断开
+     */
+    public static void register(HttpURLConnection connection) throws IOException {
+        CallAbortScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        scope.connections.add(connection);
+        // 登记与中断并发时，由登记方断开连接
+        if (scope.aborted) {
+            scope.connections.remove(connection);
+            connection.disconnect();
+            throw new InterruptedIOException("Call aborted");
+        }
+    }
+
+    /**
+     * 连接使用完毕后取消登记
+     * @param connection 连接
+     */
+    public static void unregister(HttpURLConnection connection) {
+        CallAbortScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.connections.remove(connection);
+        }
+    }
+
+    /**
+     * 中断范围：断开所有已登记的连接，之后登记的连接立即断开
+     */
+    public void abort() {
+        aborted = true;
+        for (HttpURLConnection connection : connections) {
+            connection.disconnect();
+        }
+        connections.clear();
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+}
@@ -0,0 +1,84 @@
+package com.trae.loganalysis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * CSV工具：按RFC 4180格式以UTF-8流式写出，行数据由迭代器逐行提供
+ */
+@Component
+public class CsvUtil {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvUtil.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 流式写出CSV
+     * @param out 输出流，由调用方关闭
+     * @param header 表头
+     * @param rows 数据行迭代器
+     * @return 写出的数据行数（不含表头）
+     */
+    public long writeCsv(OutputStream out, List<String> header, Iterator<List<String>> rows) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeRow(writer, header);
+        long count = 0;
+        while (rows.hasNext()) {
+            writeRow(writer, rows.next());
+            count++;
+        }
+        writer.flush();
+        logger.info("CSV流式写出完成，共 {} 行数据", count);
+        return count;
+    }
+
+    private void writeRow(Writer writer, List<String> rowData) throws IOException {
+        for (int colIndex = 0; colIndex < rowData.size(); colIndex++) {
+            if (colIndex > 0) {
+                writer.write(',');
+            }
+            writeField(writer, rowData.get(colIndex));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * 包含逗号、引号或换行的字段用双引号包围，字段内的双引号写两次
+     */
+    static void writeField(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                writer.write(value, start, i - start + 1);
+                writer.write('"');
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+}
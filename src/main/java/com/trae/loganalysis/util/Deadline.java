@@ -0,0 +1,87 @@
+package com.trae.loganalysis.util;
+
+/**
+ * 截止时间：由数据行和文件的时间预算计算得出，随分析上下文传递给每一次下游调用，
+ * 下游调用的连接和读取超时不超过剩余时间
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    // 截止时间（毫秒时间戳）
+    private final long expireTime;
+
+    private Deadline(long expireTime) {
+        this.expireTime = expireTime;
+    }
+
+    /**
+     * 没有截止时间
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * 从当前时间起经过指定毫秒数后截止
+     * @param millis 时间预算（毫秒），不大于0表示没有截止时间
+     */
+    public static Deadline after(long millis) {
+        return millis > 0 ? new Deadline(System.currentTimeMillis() + millis) : NONE;
+    }
+
+    /**
+     * 在指定时间截止
+     * @param expireTime 截止时间（毫秒时间戳），为空表示没有截止时间
+     */
+    public static Deadline at(Long expireTime) {
+        return expireTime != null ? new Deadline(expireTime) : NONE;
+    }
+
+    /**
+     * 取两个截止时间中较早的一个
+     */
+    public Deadline min(Deadline other) {
+        return other.expireTime < expireTime ? other : this;
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+
+    /**
+     * 剩余毫秒数，已截止时为0或负数
+     */
+    public long remainingMillis() {
+        return expireTime == Long.MAX_VALUE ? Long.MAX_VALUE : expireTime - System.currentTimeMillis();
+    }
+
+    /**
+     * 计算下游调用的超时时间：不超过配置的超时，也不超过剩余时间
+     * @param limit 配置的超时（毫秒），不大于0表示不限制
+     * @return 超时毫秒数
+     * @throws DeadlineExceededException 已截止时
+     */
+    public int timeoutMillis(int limit) {
+        long remaining = remainingMillis();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Deadline exceeded");
+        }
+        long timeout = limit > 0 ? Math.min(limit, remaining) : remaining;
+        return (int) Math.min(timeout, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 已截止时抛出异常，用于在长时间读取中途检查
+     * @throws DeadlineExceededException 已截止时
+     */
+    public void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Deadline exceeded");
+        }
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+}
@@ -0,0 +1,13 @@
+package com.trae.loganalysis.util;
+
+/**
+ * 超出截止时间，数据行以超时状态结束
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
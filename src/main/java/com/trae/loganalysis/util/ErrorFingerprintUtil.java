@@ -0,0 +1,55 @@
+package com.trae.loganalysis.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * 错误签名工具：将错误描述中的时间戳、UUID、十六进制ID和数字等易变部分替换为占位符，
+ * 归一化后相同的错误视为同一类，只需分析一次
+ */
+@Component
+public class ErrorFingerprintUtil {
+
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "\\d{4}-\\d{1,2}-\\d{1,2}[ T]\\d{1,2}:\\d{2}(?::\\d{2})?(?:[.,]\\d+)?");
+    private static final Pattern UUID = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern HEX = Pattern.compile("\\b(?:0[xX][0-9a-fA-F]+|(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{8,})\\b");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 归一化错误描述
+     * @param text 原始错误描述
+     * @return 归一化后的文本，空输入返回空字符串
+     */
+    public String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String normalized = TIMESTAMP.matcher(text).replaceAll("<ts>");
+        normalized = UUID.matcher(normalized).replaceAll("<uuid>");
+        normalized = HEX.matcher(normalized).replaceAll("<hex>");
+        normalized = NUMBER.matcher(normalized).replaceAll("#");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * 计算错误签名：归一化文本的64位FNV-1a哈希，以16位十六进制字符串表示
+     * @param text 原始错误描述
+     * @return 错误签名
+     */
+    public String fingerprint(String text) {
+        String normalized = normalize(text);
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return String.format("%016x", hash);
+    }
+}
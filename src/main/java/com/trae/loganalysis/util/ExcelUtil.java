@@ -1,17 +1,22 @@
 package com.trae.loganalysis.util;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 @Component
@@ -19,6 +24,14 @@ public class ExcelUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(ExcelUtil.class);
 
+    // Excel单元格最多容纳的字符数
+    private static final int MAX_CELL_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+    private static final String TRUNCATED_SUFFIX = "...(已截断，内容过长)";
+
+    // 流式写出时内存中保留的行数，超出的行写入临时文件
+    @Value("${file.export.row-window:100}")
+    private int rowWindowSize;
+
     /**
      * 读取Excel文件内容
      * @param filePath 文件路径
@@ -139,6 +152,54 @@ public class ExcelUtil {
         }
     }
 
+    /**
+     * 流式写出.xlsx：SXSSF只在内存中保留最近的若干行，更早的行压缩写入临时文件，
+     * 行数据由迭代器逐行提供，内存占用与行数无关
+     * @param out 输出流，由调用方关闭
+     * @param sheetName sheet名称
+     * @param header 表头
+     * @param rows 数据行迭代器
+     * @return 写出的数据行数（不含表头）
+     */
+    public long writeExcel(OutputStream out, String sheetName, List<String> header, Iterator<List<String>> rows) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindowSize);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet(sheetName);
+            int rowIndex = 0;
+            writeRow(sheet.createRow(rowIndex++), header);
+            while (rows.hasNext()) {
+                writeRow(sheet.createRow(rowIndex++), rows.next());
+            }
+            workbook.write(out);
+            logger.info("Excel流式写出完成，sheet: {}, 共 {} 行数据", sheetName, rowIndex - 1);
+            return rowIndex - 1;
+        } finally {
+            // 删除临时文件
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeRow(Row row, List<String> rowData) {
+        for (int colIndex = 0; colIndex < rowData.size(); colIndex++) {
+            String value = truncateCell(rowData.get(colIndex));
+            row.createCell(colIndex).setCellValue(value != null ? value : "");
+        }
+    }
+
+    /**
+     * 截断超过Excel单元格长度限制的文本；导出源码的预格式化也使用该方法，两处的截断结果一致
+     * @param text 文本
+     * @return 截断后的文本，未超出限制时返回原文本
+     */
+    public static String truncateCell(String text) {
+        if (text == null || text.length() <= MAX_CELL_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_CELL_LENGTH - TRUNCATED_SUFFIX.length()) + TRUNCATED_SUFFIX;
+    }
+
     /**
      * Sheet数据封装类
      */
@@ -0,0 +1,119 @@
+package com.trae.loganalysis.util;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 导出源码格式化：将分析结果的code字段转换为适合Excel单元格显示的文本。
+ * 在分析结果写入时计算一次并保存，导出时直接读取
+ */
+public class ExportCodeFormatter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportCodeFormatter.class);
+
+    private ExportCodeFormatter() {
+    }
+
+    /**
+     * 格式化code字段用于Excel导出，处理JSON数组的换行显示
+     * 根据类名、行号、方法名从源码列表中提取对应的方法源码
+     * @param code 源码，JSON数组格式的源码列表或普通文本
+     * @param className 类名
+     * @param lineNumber 行号
+     * @param methodName 方法名
+     * @return 格式化后的字符串，适合Excel显示
+     */
+    public static String format(String code, String className, Integer lineNumber, String methodName) {
+        if (code == null || code.isEmpty()) {
+            return "";
+        }
+
+        // 不是JSON数组时无需解析，直接按普通文本处理
+        if (!code.stripLeading().startsWith("[")) {
+            return truncate(code);
+        }
+
+        try {
+            // 解析JSON数组
+            JSONArray codeArray = JSON.parseArray(code);
+            if (codeArray == null || codeArray.isEmpty()) {
+                return "";
+            }
+
+            // 如果没有提供类名、行号、方法名，直接返回所有源码
+            if (className == null || className.isEmpty() || lineNumber == null || methodName == null || methodName.isEmpty()) {
+                return truncate(formatAllCodeLines(codeArray));
+            }
+
+            // 根据类名、行号、方法名提取对应的源码
+            return truncate(extractMethodCode(codeArray, className, methodName));
+        } catch (Exception e) {
+            logger.warn("解析code字段JSON失败，按普通文本导出: {}", e.getMessage());
+            return truncate(code);
+        }
+    }
+
+    /**
+     * 截断超过Excel单元格长度限制的内容，与写出单元格时使用同一截断规则
+     * @param text 文本
+     * @return 截断后的文本
+     */
+    private static String truncate(String text) {
+        String truncated = ExcelUtil.truncateCell(text);
+        if (truncated.length() != text.length()) {
+            logger.warn("code字段内容过长，已截断。原始长度: {}", text.length());
+        }
+        return truncated;
+    }
+
+    /**
+     * 格式化所有源码行
+     * @param codeArray 源码数组
+     * @return 格式化后的字符串
+     */
+    private static String formatAllCodeLines(JSONArray codeArray) {
+        StringBuilder formattedCode = new StringBuilder();
+        for (int i = 0; i < codeArray.size(); i++) {
+            String codeLine = codeArray.getString(i);
+            if (codeLine != null) {
+                if (i > 0) {
+                    formattedCode.append("\n");
+                }
+                formattedCode.append(codeLine);
+            }
+        }
+        return formattedCode.toString();
+    }
+
+    /**
+     * 从源码数组中提取包含方法签名的源码行，未找到时返回所有源码
+     * @param codeArray 源码数组
+     * @param className 类名
+     * @param methodName 方法名
+     * @return 提取的方法源码
+     */
+    private static String extractMethodCode(JSONArray codeArray, String className, String methodName) {
+        String methodSignature = className + "." + methodName;
+
+        StringBuilder extractedCode = new StringBuilder();
+        boolean foundMethod = false;
+        for (int i = 0; i < codeArray.size(); i++) {
+            String codeLine = codeArray.getString(i);
+            if (codeLine != null && codeLine.contains(methodSignature)) {
+                foundMethod = true;
+                if (extractedCode.length() > 0) {
+                    extractedCode.append("\n");
+                }
+                extractedCode.append(codeLine);
+            }
+        }
+
+        if (!foundMethod) {
+            logger.debug("未找到方法签名: {}，返回所有源码", methodSignature);
+            return formatAllCodeLines(codeArray);
+        }
+        return extractedCode.toString();
+    }
+}
@@ -0,0 +1,192 @@
+package com.trae.loganalysis.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件下载工具：支持单个Range请求和If-Range条件，中断的下载可以从断点继续。
+ * 运行在支持sendfile的Tomcat上时由容器直接以sendfile发送文件，否则通过FileChannel.transferTo写出
+ */
+@Component
+public class FileDownloadUtil {
+
+    // Tomcat的sendfile请求属性，见org.apache.catalina.Globals
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // 不可满足的Range
+    static final long[] UNSATISFIABLE = new long[0];
+
+    /**
+     * 将文件写出到响应，处理Range和If-Range请求头
+     * @param request 请求
+     * @param response 响应
+     * @param file 文件
+     * @param downloadName 下载文件名
+     * @param eTag 文件的强ETag，为空时根据文件大小和修改时间生成
+     * @throws FileNotFoundException 文件不存在，此时尚未写出任何响应头
+     */
+    public void writeFile(HttpServletRequest request, HttpServletResponse response, File file,
+                          String downloadName, String eTag) throws IOException {
+        // 文件不存在时length()返回0，不能把空内容和ETag一起发给客户端
+        if (!file.isFile()) {
+            throw new FileNotFoundException("File not found: " + file.getPath());
+        }
+        long length = file.length();
+        // HTTP日期只精确到秒
+        long lastModified = file.lastModified() / 1000 * 1000;
+        String tag = eTag != null ? eTag : "\"" + length + "-" + lastModified + "\"";
+
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(downloadName, StandardCharsets.UTF_8).build().toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, tag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, tag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == UNSATISFIABLE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count <= 0 || "HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
+        }
+
+        // 容器支持sendfile时交给容器发送，文件内容不经过用户态
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    throw new IOException("File truncated while sending: " + file.getPath());
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * If-Range与当前ETag或修改时间一致时才按Range返回部分内容，否则返回完整文件
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(eTag);
+        }
+        if (ifRange.startsWith("W/")) {
+            // 弱ETag不能用于Range请求
+            return false;
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析单个字节范围：bytes=a-b、bytes=a-、bytes=-n
+     * @param range Range请求头
+     * @param length 文件长度
+     * @return 起止位置（均包含），格式不正确或包含多个范围时返回null表示返回完整文件，
+     * 不可满足时返回UNSATISFIABLE
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        boolean valid = first.isEmpty() ? isDigits(last) : isDigits(first) && (last.isEmpty() || isDigits(last));
+        if (!valid) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 最后n个字节
+                long suffix = Long.parseLong(last);
+                if (suffix == 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                if (!last.isEmpty() && Long.parseLong(last) < start) {
+                    return null;
+                }
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            // 超出long范围
+            return null;
+        }
+    }
+
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,473 @@
+package com.trae.loganalysis.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Java源码方法索引：用一个简单的词法分析器单次扫描源码（正确跳过注释、字符串、文本块和字符字面量），
+ * 记录每个带方法体的方法声明的名称、参数列表、起止偏移和行号范围。
+ * 方法按起始位置有序，按行号查找包含该行的方法为O(log n)，同名重载按行号区分
+ */
+public final class JavaMethodIndex {
+
+    private static final Set<String> NON_METHOD_KEYWORDS = new HashSet<>(Arrays.asList(
+            "if", "for", "while", "switch", "catch", "synchronized", "return", "new", "throw",
+            "try", "do", "else", "case", "assert", "super", "this", "yield"));
+
+    private static final int IDENT = 0;
+    private static final int PUNCT = 1;
+    private static final int LITERAL = 2;
+
+    private static final int CTX_CLASS = 0;
+    private static final int CTX_ENUM = 1;
+    private static final int CTX_METHOD = 2;
+    private static final int CTX_BLOCK = 3;
+
+    private final List<MethodDeclaration> methods;
+    private final int sourceLength;
+    private final int sourceHash;
+
+    private JavaMethodIndex(List<MethodDeclaration> methods, String source) {
+        this.methods = Collections.unmodifiableList(methods);
+        this.sourceLength = source.length();
+        this.sourceHash = source.hashCode();
+    }
+
+    /**
+     * 为源码建立方法索引
+     * @param source Java源码
+     * @return 方法索引
+     */
+    public static JavaMethodIndex build(String source) {
+        return new Builder(source).build();
+    }
+
+    /**
+     * 判断索引是否由给定源码建立
+     */
+    public boolean matches(String source) {
+        return source != null && source.length() == sourceLength && source.hashCode() == sourceHash;
+    }
+
+    public List<MethodDeclaration> getMethods() {
+        return methods;
+    }
+
+    /**
+     * 查找包含指定行的最内层方法
+     * @param line 行号，从1开始
+     * @return 方法声明，不在任何方法内时返回null
+     */
+    public MethodDeclaration findByLine(int line) {
+        int low = 0;
+        int high = methods.size() - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (methods.get(mid).getStartLine() <= line) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // 起始行不晚于该行的最后一个方法要么包含该行，要么嵌套在包含该行的方法中
+        while (candidate >= 0) {
+            MethodDeclaration method = methods.get(candidate);
+            if (method.getEndLine() >= line) {
+                return method;
+            }
+            candidate = method.parent;
+        }
+        return null;
+    }
+
+    /**
+     * 按方法名和行号查找方法：优先取包含该行且同名的方法，否则取同名方法中起始行最接近的重载
+     * @param methodName 方法名，为空时只按行号查找
+     * @param lineNum 行号，可为空
+     * @return 方法声明，未找到时返回null
+     */
+    public MethodDeclaration find(String methodName, Integer lineNum) {
+        boolean anyName = methodName == null || methodName.isEmpty();
+        if (lineNum != null) {
+            MethodDeclaration method = findByLine(lineNum);
+            while (method != null) {
+                if (anyName || method.getName().equals(methodName)) {
+                    return method;
+                }
+                method = method.parent >= 0 ? methods.get(method.parent) : null;
+            }
+        }
+        if (anyName) {
+            return null;
+        }
+
+        MethodDeclaration best = null;
+        for (MethodDeclaration method : methods) {
+            if (!method.getName().equals(methodName)) {
+                continue;
+            }
+            if (best == null || (lineNum != null
+                    && Math.abs(method.getStartLine() - lineNum) < Math.abs(best.getStartLine() - lineNum))) {
+                best = method;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 方法声明，起始位置包含注解、修饰符和返回类型，结束位置为方法体的右大括号之后
+     */
+    public static class MethodDeclaration {
+        private final String name;
+        private final String parameters;
+        private final int startOffset;
+        private final int startLine;
+        private final int parent;
+        private int endOffset;
+        private int endLine;
+
+        private MethodDeclaration(String name, String parameters, int startOffset, int startLine, int parent) {
+            this.name = name;
+            this.parameters = parameters;
+            this.startOffset = startOffset;
+            this.startLine = startLine;
+            this.parent = parent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getParameters() {
+            return parameters;
+        }
+
+        public int getStartOffset() {
+            return startOffset;
+        }
+
+        public int getEndOffset() {
+            return endOffset;
+        }
+
+        public int getStartLine() {
+            return startLine;
+        }
+
+        public int getEndLine() {
+            return endLine;
+        }
+    }
+
+    /**
+     * 词法分析与声明识别
+     */
+    private static class Builder {
+        private final String source;
+        private int[] kinds = new int[256];
+        private int[] starts = new int[256];
+        private int[] ends = new int[256];
+        private int[] lines = new int[256];
+        private int count;
+
+        private Builder(String source) {
+            this.source = source;
+        }
+
+        private JavaMethodIndex build() {
+            tokenize();
+            int[] matching = matchParentheses();
+            List<MethodDeclaration> methods = new ArrayList<>();
+
+            // 上下文栈：{上下文类型, 方法下标, 枚举常量区标记}
+            Deque<int[]> contexts = new ArrayDeque<>();
+            int pendingClassKind = -1;
+            int pendingMethod = -1;
+            int declStart = 0;
+
+            for (int i = 0; i < count; i++) {
+                int[] top = contexts.peek();
+                boolean classLevel = top == null || top[0] == CTX_CLASS || top[0] == CTX_ENUM;
+
+                if (kinds[i] == IDENT) {
+                    String word = text(i);
+                    if (isClassKeyword(word) && !isPunct(i - 1, '.') && i + 1 < count && kinds[i + 1] == IDENT) {
+                        pendingClassKind = "enum".equals(word) ? CTX_ENUM : CTX_CLASS;
+                        continue;
+                    }
+                    if (top != null && classLevel && pendingClassKind < 0 && isPunct(i + 1, '(')
+                            && !NON_METHOD_KEYWORDS.contains(word) && !isPunct(i - 1, '.') && !isPunct(i - 1, '@')
+                            && !(top[0] == CTX_ENUM && top[2] == 1) && !isInitializer(i, declStart, matching)) {
+                        int close = matching[i + 1];
+                        int body = close < 0 ? -1 : skipThrowsClause(close + 1);
+                        if (body >= 0 && isPunct(body, '{')) {
+                            String parameters = close > i + 2
+                                    ? source.substring(ends[i + 1], starts[close]).trim().replaceAll("\\s+", " ")
+                                    : "";
+                            methods.add(new MethodDeclaration(word, parameters, starts[declStart], lines[declStart],
+                                    enclosingMethod(contexts)));
+                            pendingMethod = methods.size() - 1;
+                            i = body - 1;
+                        }
+                    }
+                    continue;
+                }
+                if (kinds[i] != PUNCT) {
+                    continue;
+                }
+
+                char c = source.charAt(starts[i]);
+                if (c == '{') {
+                    int kind;
+                    int methodIndex = -1;
+                    if (pendingMethod >= 0) {
+                        kind = CTX_METHOD;
+                        methodIndex = pendingMethod;
+                    } else if (pendingClassKind >= 0) {
+                        kind = pendingClassKind;
+                    } else if (isAnonymousClassBody(i, matching)
+                            || (top != null && top[0] == CTX_ENUM && top[2] == 1)) {
+                        // 匿名类或带类体的枚举常量
+                        kind = CTX_CLASS;
+                    } else {
+                        kind = CTX_BLOCK;
+                    }
+                    contexts.push(new int[]{kind, methodIndex, kind == CTX_ENUM ? 1 : 0});
+                    pendingMethod = -1;
+                    pendingClassKind = -1;
+                    declStart = i + 1;
+                } else if (c == '}') {
+                    int[] closed = contexts.poll();
+                    if (closed != null && closed[0] == CTX_METHOD) {
+                        MethodDeclaration method = methods.get(closed[1]);
+                        method.endOffset = ends[i];
+                        method.endLine = lines[i];
+                    }
+                    declStart = i + 1;
+                } else if (c == ';') {
+                    if (top != null && top[0] == CTX_ENUM) {
+                        top[2] = 0;
+                    }
+                    pendingClassKind = -1;
+                    declStart = i + 1;
+                }
+            }
+
+            // 源码不完整时未闭合的方法延伸到末尾
+            for (MethodDeclaration method : methods) {
+                if (method.endOffset == 0) {
+                    method.endOffset = source.length();
+                    method.endLine = count > 0 ? lines[count - 1] : method.startLine;
+                }
+            }
+            return new JavaMethodIndex(methods, source);
+        }
+
+        private void tokenize() {
+            int length = source.length();
+            int line = 1;
+            int i = 0;
+            while (i < length) {
+                char c = source.charAt(i);
+                int start = i;
+                int startLine = line;
+                if (c == '\n') {
+                    line++;
+                    i++;
+                    continue;
+                }
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                    while (i < length && source.charAt(i) != '\n') {
+                        i++;
+                    }
+                    continue;
+                }
+                if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                    int end = source.indexOf("*/", i + 2);
+                    end = end < 0 ? length : end + 2;
+                    line += countLines(i, end);
+                    i = end;
+                    continue;
+                }
+                if (c == '"' && source.startsWith("\"\"\"", i)) {
+                    i = skipQuoted(i + 3, "\"\"\"", false);
+                    line += countLines(start, i);
+                    add(LITERAL, start, i, startLine);
+                    continue;
+                }
+                if (c == '"' || c == '\'') {
+                    i = skipQuoted(i + 1, c == '"' ? "\"" : "'", true);
+                    add(LITERAL, start, i, startLine);
+                    continue;
+                }
+                if (Character.isJavaIdentifierStart(c)) {
+                    while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+                        i++;
+                    }
+                    add(IDENT, start, i, startLine);
+                    continue;
+                }
+                if (Character.isDigit(c)) {
+                    while (i < length && (Character.isJavaIdentifierPart(source.charAt(i)) || source.charAt(i) == '.')) {
+                        i++;
+                    }
+                    add(LITERAL, start, i, startLine);
+                    continue;
+                }
+                add(PUNCT, start, i + 1, startLine);
+                i++;
+            }
+        }
+
+        /**
+         * 跳过字符串、字符或文本块字面量，返回结束引号之后的位置；单行字面量遇到换行即结束
+         */
+        private int skipQuoted(int i, String quote, boolean singleLine) {
+            int length = source.length();
+            while (i < length) {
+                char c = source.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (source.startsWith(quote, i)) {
+                    return i + quote.length();
+                } else if (singleLine && c == '\n') {
+                    return i;
+                } else {
+                    i++;
+                }
+            }
+            return length;
+        }
+
+        private int countLines(int from, int to) {
+            int lineCount = 0;
+            for (int i = from; i < to; i++) {
+                if (source.charAt(i) == '\n') {
+                    lineCount++;
+                }
+            }
+            return lineCount;
+        }
+
+        private void add(int kind, int start, int end, int line) {
+            if (count == kinds.length) {
+                int capacity = count * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+            }
+            kinds[count] = kind;
+            starts[count] = start;
+            ends[count] = end;
+            lines[count] = line;
+            count++;
+        }
+
+        /**
+         * 计算每个括号对应的另一半的下标，未配对的为-1
+         */
+        private int[] matchParentheses() {
+            int[] matching = new int[count];
+            Arrays.fill(matching, -1);
+            Deque<Integer> open = new ArrayDeque<>();
+            for (int i = 0; i < count; i++) {
+                if (isPunct(i, '(')) {
+                    open.push(i);
+                } else if (isPunct(i, ')') && !open.isEmpty()) {
+                    int j = open.pop();
+                    matching[i] = j;
+                    matching[j] = i;
+                }
+            }
+            return matching;
+        }
+
+        /**
+         * 跳过方法参数列表之后的throws子句和旧式数组维度，返回下一个记号的下标
+         */
+        private int skipThrowsClause(int i) {
+            while (isPunct(i, '[') || isPunct(i, ']')) {
+                i++;
+            }
+            if (i < count && kinds[i] == IDENT && "throws".equals(text(i))) {
+                i++;
+                while (i < count && (kinds[i] == IDENT || isPunct(i, '.') || isPunct(i, ',')
+                        || isPunct(i, '<') || isPunct(i, '>') || isPunct(i, '?'))) {
+                    i++;
+                }
+            }
+            return i < count ? i : -1;
+        }
+
+        /**
+         * 判断“名称(”是否处于字段初始化表达式中，而不是方法声明：前面是new（如匿名类），
+         * 或同一声明中在括号之外已出现“=”。注解参数中的“=”位于括号内，不受影响
+         */
+        private boolean isInitializer(int ident, int declStart, int[] matching) {
+            if (ident > 0 && kinds[ident - 1] == IDENT && "new".equals(text(ident - 1))) {
+                return true;
+            }
+            for (int j = ident - 1; j >= declStart; j--) {
+                if (isPunct(j, ')') && matching[j] >= 0) {
+                    j = matching[j];
+                } else if (isPunct(j, '=')) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 判断“{”是否为匿名类类体：前面是“new 类型(...)”
+         */
+        private boolean isAnonymousClassBody(int brace, int[] matching) {
+            if (!isPunct(brace - 1, ')') || matching[brace - 1] < 0) {
+                return false;
+            }
+            for (int i = matching[brace - 1] - 1, steps = 0; i >= 0 && steps < 64; i--, steps++) {
+                if (kinds[i] == IDENT) {
+                    if ("new".equals(text(i))) {
+                        return true;
+                    }
+                } else if (!(isPunct(i, '.') || isPunct(i, '<') || isPunct(i, '>') || isPunct(i, ',') || isPunct(i, '?'))) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private int enclosingMethod(Deque<int[]> contexts) {
+            for (int[] context : contexts) {
+                if (context[0] == CTX_METHOD) {
+                    return context[1];
+                }
+            }
+            return -1;
+        }
+
+        private boolean isClassKeyword(String word) {
+            return "class".equals(word) || "interface".equals(word) || "enum".equals(word) || "record".equals(word);
+        }
+
+        private boolean isPunct(int i, char c) {
+            return i >= 0 && i < count && kinds[i] == PUNCT && source.charAt(starts[i]) == c;
+        }
+
+        private String text(int i) {
+            return source.substring(starts[i], ends[i]);
+        }
+    }
+}
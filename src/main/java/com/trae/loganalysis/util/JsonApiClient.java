@@ -0,0 +1,74 @@
+package com.trae.loganalysis.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 下游JSON接口调用：发送POST请求，从响应流中按路径抽取字段，读到所需字段后即停止读取并断开连接。
+ * 每次调用的连接和读取超时取配置值与截止时间剩余时间中较小的一个，连接登记到当前线程的CallAbortScope，分析取消时可被断开
+ */
+@Component
+public class JsonApiClient {
+
+    // 下游接口响应的最大读取字节数
+    @Value("${api.response.max-bytes:10485760}")
+    private long responseMaxBytes;
+
+    @Value("${api.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${api.read-timeout-ms:60000}")
+    private int readTimeoutMs;
+
+    /**
+     * 发送JSON POST请求并抽取字段
+     * @param url 接口地址
+     * @param requestBody 请求体
+     * @param deadline 截止时间
+     * @param paths 字段路径
+     * @return 路径与字段值的映射
+     */
+    public Map<String, String> postForFields(String url, String requestBody, Deadline deadline, String... paths) throws IOException {
+        HttpURLConnection[] opened = new HttpURLConnection[1];
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                opened[0] = connection;
+                CallAbortScope.register(connection);
+            }
+        };
+        requestFactory.setConnectTimeout(deadline.timeoutMillis(connectTimeoutMs));
+        requestFactory.setReadTimeout(deadline.timeoutMillis(readTimeoutMs));
+
+        try {
+            ClientHttpRequest request = requestFactory.createRequest(URI.create(url), HttpMethod.POST);
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.getBody().write(requestBody.getBytes(StandardCharsets.UTF_8));
+            // 不关闭ClientHttpResponse：其close()会把剩余响应体读完以复用连接，
+            // 既读取了不需要的字段，也不受最大读取字节数限制
+            ClientHttpResponse response = request.execute();
+            if (response.getStatusCode().isError()) {
+                throw new IOException("HTTP " + response.getStatusCode().value() + " from " + url);
+            }
+            return JsonStreamExtractor.extract(response.getBody(), responseMaxBytes, paths);
+        } finally {
+            // 抽取提前结束或超出读取上限时响应体尚未读完，直接断开连接丢弃剩余内容
+            if (opened[0] != null) {
+                CallAbortScope.unregister(opened[0]);
+                opened[0].disconnect();
+            }
+        }
+    }
+}
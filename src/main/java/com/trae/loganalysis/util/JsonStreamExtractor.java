@@ -0,0 +1,340 @@
+package com.trae.loganalysis.util;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流式JSON字段抽取：按路径（如entity.values[0].source.@message）读取少量标量字段，
+ * 不构建完整的JSON对象树，不相关的值按字符跳过，所需字段全部读到后立即停止读取
+ */
+public final class JsonStreamExtractor {
+
+    private final Reader reader;
+    private final Set<String> pending;
+    private final Map<String, String> values = new HashMap<>();
+    private final StringBuilder buffer = new StringBuilder();
+    private int peeked = -2;
+
+    private JsonStreamExtractor(Reader reader, Set<String> paths) {
+        this.reader = reader;
+        this.pending = paths;
+    }
+
+    /**
+     * 从响应流中抽取字段，读取的字节数超过上限时抛出异常
+     * @param in 响应流，UTF-8编码
+     * @param maxBytes 最多读取的字节数
+     * @param paths 字段路径，对象属性用“.”分隔，数组元素用“[下标]”表示
+     * @return 路径与字段值的映射，字符串已反转义，数字和布尔值为原文，未找到或为null的字段不包含在内
+     * @throws IOException 读取失败、JSON格式错误或超过大小上限
+     */
+    public static Map<String, String> extract(InputStream in, long maxBytes, String... paths) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(new LimitedInputStream(in, maxBytes), StandardCharsets.UTF_8));
+        return extract(reader, paths);
+    }
+
+    /**
+     * 从字符流中抽取字段
+     * @param reader 字符流
+     * @param paths 字段路径
+     * @return 路径与字段值的映射
+     * @throws IOException 读取失败或JSON格式错误
+     */
+    public static Map<String, String> extract(Reader reader, String... paths) throws IOException {
+        JsonStreamExtractor extractor = new JsonStreamExtractor(reader, new HashSet<>(Arrays.asList(paths)));
+        if (extractor.skipWhitespace() >= 0) {
+            extractor.readValue("");
+        }
+        return extractor.values;
+    }
+
+    private void readValue(String path) throws IOException {
+        int c = skipWhitespace();
+        if (!isRelevant(path)) {
+            skipValue();
+        } else if (c == '{') {
+            readObject(path);
+        } else if (c == '[') {
+            readArray(path);
+        } else {
+            String value = c == '"' ? readString() : readLiteral();
+            pending.remove(path);
+            if (value != null) {
+                values.put(path, value);
+            }
+        }
+    }
+
+    private void readObject(String path) throws IOException {
+        next();
+        if (skipWhitespace() == '}') {
+            next();
+            return;
+        }
+        while (true) {
+            if (skipWhitespace() != '"') {
+                throw malformed("object key");
+            }
+            String key = readString();
+            expect(':');
+            readValue(path.isEmpty() ? key : path + "." + key);
+            if (pending.isEmpty()) {
+                return;
+            }
+            int c = skipWhitespace();
+            next();
+            if (c == '}') {
+                return;
+            }
+            if (c != ',') {
+                throw malformed("',' or '}'");
+            }
+        }
+    }
+
+    private void readArray(String path) throws IOException {
+        next();
+        if (skipWhitespace() == ']') {
+            next();
+            return;
+        }
+        for (int index = 0; ; index++) {
+            readValue(path + "[" + index + "]");
+            if (pending.isEmpty()) {
+                return;
+            }
+            int c = skipWhitespace();
+            next();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw malformed("',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * 路径本身或其子路径仍有待读取的字段
+     */
+    private boolean isRelevant(String path) {
+        if (path.isEmpty()) {
+            return !pending.isEmpty();
+        }
+        for (String target : pending) {
+            if (target.startsWith(path)
+                    && (target.length() == path.length() || target.charAt(path.length()) == '.' || target.charAt(path.length()) == '[')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 跳过一个完整的值，只计数括号层级，不分配对象
+     */
+    private void skipValue() throws IOException {
+        int c = skipWhitespace();
+        if (c != '{' && c != '[') {
+            if (c == '"') {
+                skipString();
+            } else {
+                skipLiteral();
+            }
+            return;
+        }
+        int depth = 0;
+        do {
+            c = next();
+            if (c < 0) {
+                throw malformed("end of container");
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            } else if (c == '"') {
+                peeked = c;
+                skipString();
+            }
+        } while (depth > 0);
+    }
+
+    private void skipString() throws IOException {
+        next();
+        while (true) {
+            int c = next();
+            if (c < 0) {
+                throw malformed("end of string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        while (!isDelimiter(peek())) {
+            next();
+        }
+    }
+
+    private String readString() throws IOException {
+        next();
+        buffer.setLength(0);
+        while (true) {
+            int c = next();
+            if (c < 0) {
+                throw malformed("end of string");
+            }
+            if (c == '"') {
+                return buffer.toString();
+            }
+            if (c != '\\') {
+                buffer.append((char) c);
+                continue;
+            }
+            c = next();
+            switch (c) {
+                case 'b': buffer.append('\b'); break;
+                case 'f': buffer.append('\f'); break;
+                case 'n': buffer.append('\n'); break;
+                case 'r': buffer.append('\r'); break;
+                case 't': buffer.append('\t'); break;
+                case 'u': buffer.append(readUnicode()); break;
+                case '"':
+                case '\\':
+                case '/':
+                    buffer.append((char) c);
+                    break;
+                default:
+                    throw malformed("escape sequence");
+            }
+        }
+    }
+
+    private char readUnicode() throws IOException {
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(next(), 16);
+            if (digit < 0) {
+                throw malformed("unicode escape");
+            }
+            code = (code << 4) | digit;
+        }
+        return (char) code;
+    }
+
+    private String readLiteral() throws IOException {
+        buffer.setLength(0);
+        while (!isDelimiter(peek())) {
+            buffer.append((char) next());
+        }
+        if (buffer.length() == 0) {
+            throw malformed("value");
+        }
+        String literal = buffer.toString();
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (skipWhitespace() != expected) {
+            throw malformed("'" + expected + "'");
+        }
+        next();
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            next();
+            c = peek();
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+
+    private static boolean isDelimiter(int c) {
+        return c < 0 || c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static IOException malformed(String expected) {
+        return new IOException("Malformed JSON, expected " + expected);
+    }
+
+    /**
+     * 限制可读取字节数的输入流
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+        private final long maxBytes;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return checkEnd();
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return checkEnd();
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        /**
+         * 已读满上限时，只有流恰好结束才算正常
+         */
+        private int checkEnd() throws IOException {
+            if (super.read() < 0) {
+                return -1;
+            }
+            throw new IOException("Response exceeds " + maxBytes + " bytes");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.trae.loganalysis.util;
+
+import com.trae.loganalysis.model.LogLocation;
+
+/**
+ * 日志消息解析：单次扫描方括号分段的日志，找到第一个[全限定类名.方法名:行号]片段，
+ * 不使用正则、不产生中间字符串数组
+ * 日志格式: [YYYY-MM-DD HH:mm:ss][ERROR][xxx-xxx][][][org.spring.config.UpdateCommon.update:98][Thread][td][sd]...
+ */
+public final class LogMessageParser {
+
+    // 行号最多9位，保证不溢出int
+    private static final int MAX_LINE_DIGITS = 9;
+
+    private LogMessageParser() {
+    }
+
+    /**
+     * 解析日志中的代码位置
+     * @param logMessage 日志消息
+     * @return 代码位置，未找到时返回null
+     */
+    public static LogLocation parseLocation(String logMessage) {
+        if (logMessage == null || logMessage.isEmpty()) {
+            return null;
+        }
+
+        int length = logMessage.length();
+        int open = logMessage.indexOf('[');
+        while (open >= 0) {
+            int i = open + 1;
+            int lastDot = -1;
+            // 类名和方法名部分：字母、数字、下划线和点
+            while (i < length && isNameChar(logMessage.charAt(i))) {
+                if (logMessage.charAt(i) == '.') {
+                    lastDot = i;
+                }
+                i++;
+            }
+            int colon = i;
+            if (colon > open + 1 && colon < length && logMessage.charAt(colon) == ':') {
+                i++;
+                int line = 0;
+                int digits = 0;
+                while (i < length && isDigit(logMessage.charAt(i))) {
+                    if (digits < MAX_LINE_DIGITS) {
+                        line = line * 10 + (logMessage.charAt(i) - '0');
+                    }
+                    digits++;
+                    i++;
+                }
+                if (digits > 0 && i < length && logMessage.charAt(i) == ']') {
+                    String className = lastDot > open ? logMessage.substring(open + 1, lastDot) : "";
+                    String methodName = logMessage.substring(lastDot > open ? lastDot + 1 : open + 1, colon);
+                    return new LogLocation(className, methodName, digits <= MAX_LINE_DIGITS ? line : null);
+                }
+            }
+            // 扫描过的字符中不含'['，下一个候选从失败位置开始查找
+            open = logMessage.indexOf('[', Math.max(i, open + 1));
+        }
+        return null;
+    }
+
+    /**
+     * 解析日志中的方法名
+     * @param logMessage 日志消息
+     * @return 方法名，未找到时返回空字符串
+     */
+    public static String parseMethodName(String logMessage) {
+        LogLocation location = parseLocation(logMessage);
+        return location == null ? "" : location.getMethodName();
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '.';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,54 @@
+package com.trae.loganalysis.util;
+
+import com.alibaba.fastjson.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NDJSON工具：每行一个JSON对象，以UTF-8流式写出，行数据由迭代器逐行提供
+ */
+@Component
+public class NdjsonUtil {
+
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonUtil.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 流式写出NDJSON
+     * @param out 输出流，由调用方关闭
+     * @param fields 字段名，与数据行的列一一对应
+     * @param rows 数据行迭代器
+     * @return 写出的数据行数
+     */
+    public long writeNdjson(OutputStream out, List<String> fields, Iterator<List<String>> rows) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Map<String, String> object = new LinkedHashMap<>();
+        long count = 0;
+        while (rows.hasNext()) {
+            List<String> rowData = rows.next();
+            object.clear();
+            for (int colIndex = 0; colIndex < fields.size() && colIndex < rowData.size(); colIndex++) {
+                object.put(fields.get(colIndex), rowData.get(colIndex));
+            }
+            writer.write(JSON.toJSONString(object));
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        logger.info("NDJSON流式写出完成，共 {} 行数据", count);
+        return count;
+    }
+}
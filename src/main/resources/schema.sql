@@ -7,7 +7,11 @@ CREATE TABLE IF NOT EXISTS upload_file (
     upload_time TIMESTAMP NOT NULL,
     status TEXT NOT NULL,
     error_message TEXT,
-    created_by TEXT
+    created_by TEXT,
+    priority INTEGER DEFAULT 0,
+    deadline_time INTEGER,
+    batch_id INTEGER,
+    prepare_time INTEGER
 );
 
 -- 创建文件数据表
@@ -32,12 +36,73 @@ CREATE TABLE IF NOT EXISTS analysis_result (
     status TEXT NOT NULL,
     log_info TEXT,
     code TEXT,
+    export_code TEXT,
     class_name TEXT,
     line_number INTEGER,
-    method_name TEXT
+    method_name TEXT,
+    cluster_id TEXT,
+    code_start_line INTEGER,
+    ai_status TEXT,
+    ai_attempts INTEGER DEFAULT 0,
+    sampled INTEGER DEFAULT 0,
+    update_time INTEGER
+);
+
+-- 创建分析任务表
+CREATE TABLE IF NOT EXISTS analysis_task (
+    id INTEGER PRIMARY KEY,
+    file_id INTEGER NOT NULL,
+    file_data_id INTEGER NOT NULL,
+    stage TEXT NOT NULL,
+    status TEXT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    create_time TIMESTAMP NOT NULL,
+    update_time TIMESTAMP NOT NULL,
+    start_time TIMESTAMP,
+    finish_time TIMESTAMP,
+    lease_owner TEXT,
+    lease_token TEXT,
+    lease_expire_time INTEGER,
+    cluster_id TEXT,
+    sampled INTEGER DEFAULT 0
+);
+
+-- 创建批量分析表
+CREATE TABLE IF NOT EXISTS analysis_batch (
+    id INTEGER PRIMARY KEY,
+    status TEXT NOT NULL,
+    file_count INTEGER NOT NULL,
+    priority INTEGER,
+    time_budget_seconds INTEGER,
+    create_time TIMESTAMP NOT NULL
+);
+
+-- 创建导出任务表
+CREATE TABLE IF NOT EXISTS export_job (
+    id INTEGER PRIMARY KEY,
+    file_id INTEGER NOT NULL,
+    status TEXT NOT NULL,
+    total_rows INTEGER,
+    written_rows INTEGER,
+    file_path TEXT,
+    error_message TEXT,
+    create_time TIMESTAMP NOT NULL,
+    finish_time TIMESTAMP,
+    owner TEXT,
+    heartbeat_time INTEGER
 );
 
 -- 创建索引
 CREATE INDEX IF NOT EXISTS idx_file_data_file_id ON file_data(file_id);
+CREATE INDEX IF NOT EXISTS idx_file_data_file_row ON file_data(file_id, row_index);
 CREATE INDEX IF NOT EXISTS idx_analysis_result_file_id ON analysis_result(file_id);
 CREATE INDEX IF NOT EXISTS idx_analysis_result_file_data_id ON analysis_result(file_data_id);
+CREATE INDEX IF NOT EXISTS idx_analysis_result_ai_status ON analysis_result(ai_status, id);
+CREATE INDEX IF NOT EXISTS idx_analysis_task_status ON analysis_task(status, id);
+CREATE INDEX IF NOT EXISTS idx_analysis_task_file_id ON analysis_task(file_id, status);
+CREATE INDEX IF NOT EXISTS idx_analysis_task_lease_token ON analysis_task(lease_token);
+CREATE INDEX IF NOT EXISTS idx_analysis_task_cluster ON analysis_task(file_id, cluster_id, status);
+CREATE INDEX IF NOT EXISTS idx_upload_file_batch_id ON upload_file(batch_id);
+CREATE INDEX IF NOT EXISTS idx_export_job_status ON export_job(status, finish_time);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_export_job_active ON export_job(file_id) WHERE status IN ('PENDING', 'RUNNING');
@@ -0,0 +1,94 @@
+package com.trae.loganalysis.benchmark;
+
+import com.trae.loganalysis.util.JavaMethodIndex;
+import com.trae.loganalysis.util.LogMessageParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 日志解析与方法查找的基准测试，对比原正则实现与单次扫描、方法索引实现。
+ * 运行方式：mvn test-compile 后执行本类的main方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogMessageParserBenchmark {
+
+    private final String logMessage = "[2024-05-01 10:00:01][ERROR][loan-service][][]" +
+            "[cn.com.zybank.mcs.loan.service.CoreConnectionService.sendCore:150][http-nio-8080-exec-3][td][sd]" +
+            " 调用核心失败 java.net.SocketTimeoutException: Read timed out";
+
+    private final String sourceCode = buildSourceCode();
+
+    @Benchmark
+    public String regexMethodName() {
+        Pattern pattern = Pattern.compile("\\[([\\w.]+:[\\d]+)\\]");
+        Matcher matcher = pattern.matcher(logMessage);
+        if (matcher.find()) {
+            String[] parts = matcher.group(1).split(":");
+            String[] classMethodParts = parts[0].split("\\.");
+            return classMethodParts[classMethodParts.length - 1];
+        }
+        return "";
+    }
+
+    @Benchmark
+    public String scannerMethodName() {
+        return LogMessageParser.parseMethodName(logMessage);
+    }
+
+    private final JavaMethodIndex methodIndex = JavaMethodIndex.build(sourceCode);
+
+    @Benchmark
+    public int regexMethodDeclaration() {
+        Pattern pattern = Pattern.compile("\\bsendCore\\s*\\([^)]*\\)\\s*\\{", Pattern.MULTILINE);
+        Matcher matcher = pattern.matcher(sourceCode);
+        return matcher.find() ? matcher.start() : -1;
+    }
+
+    @Benchmark
+    public JavaMethodIndex buildMethodIndex() {
+        return JavaMethodIndex.build(sourceCode);
+    }
+
+    @Benchmark
+    public JavaMethodIndex.MethodDeclaration cachedMethodIndexLookup() {
+        return methodIndex.find("sendCore", 203);
+    }
+
+    private static String buildSourceCode() {
+        StringBuilder builder = new StringBuilder("public class CoreConnectionService {\n");
+        for (int i = 0; i < 50; i++) {
+            builder.append("\tpublic Pair<Boolean, JSONObject> query").append(i)
+                    .append("(String customerNum) {\n\t\treturn sendCore(\"query\", tranCode, reqMap);\n\t}\n\n");
+        }
+        builder.append("\tprivate Pair<Boolean, JSONObject> sendCore(String interfaceName, String tranCode, Map<String, Object> reqMap) {\n")
+                .append("\t\treturn Pair.of(true, null);\n\t}\n}");
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LogMessageParserBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,172 @@
+package com.trae.loganalysis.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在内存SQLite数据库上直接执行AnalysisTaskRepository中的原生SQL，验证租约领取、过期接管和令牌校验
+ */
+public class AnalysisTaskRepositoryTest {
+
+    private static final long LEASE_MS = 60_000;
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("schema.sql");
+             Statement statement = connection.createStatement()) {
+            assertNotNull(in, "schema.sql不存在");
+            StringBuilder script = new StringBuilder();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.trim().startsWith("--")) {
+                    script.append(line).append('\n');
+                }
+            }
+            for (String sql : script.toString().split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+        for (long id = 1; id <= 3; id++) {
+            execute("INSERT INTO analysis_task (id, file_id, file_data_id, stage, status, attempts, create_time, update_time) " +
+                    "VALUES (?1, 1, ?1, 'ROW_ANALYSIS', 'PENDING', 0, 0, 0)", id);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    /**
+     * 测试领取只取待处理任务和租约已过期的任务，过期任务被其他实例接管时尝试次数累加
+     */
+    @Test
+    public void testClaimAndReclaimExpiredLease() throws Exception {
+        long now = 1_000_000;
+        assertEquals(2, claim("instance-a", "token-a", now, 3, 2));
+        assertEquals(2, countByToken("token-a"));
+
+        // 租约未过期，只能领取剩余的待处理任务
+        assertEquals(1, claim("instance-b", "token-b", now + 1000, 3, 10));
+        assertEquals(1, countByToken("token-b"));
+        assertEquals(2, countByToken("token-a"));
+
+        // 实例A的租约过期后由实例B接管
+        assertEquals(2, claim("instance-b", "token-c", now + LEASE_MS + 1, 3, 10));
+        assertEquals(0, countByToken("token-a"));
+        assertEquals(2, countByToken("token-c"));
+        assertEquals(2, queryLong("SELECT attempts FROM analysis_task WHERE id = 1"));
+        assertEquals("instance-b", queryString("SELECT lease_owner FROM analysis_task WHERE id = 1"));
+    }
+
+    /**
+     * 测试租约被接管后，原持有者使用旧令牌结束任务被拒绝
+     */
+    @Test
+    public void testStaleLeaseTokenRejected() throws Exception {
+        long now = 1_000_000;
+        claim("instance-a", "token-a", now, 3, 1);
+        claim("instance-b", "token-b", now + LEASE_MS + 1, 3, 1);
+
+        assertEquals(0, update("finishLeasedTask", 1L, "token-a", "SUCCESS", null, now), "旧令牌不能结束任务");
+        assertEquals("RUNNING", queryString("SELECT status FROM analysis_task WHERE id = 1"));
+
+        assertEquals(1, update("finishLeasedTask", 1L, "token-b", "SUCCESS", null, now));
+        assertEquals("SUCCESS", queryString("SELECT status FROM analysis_task WHERE id = 1"));
+        assertNull(queryString("SELECT lease_token FROM analysis_task WHERE id = 1"));
+
+        assertEquals(0, update("finishLeasedTask", 1L, "token-b", "FAILED", "again", now), "已结束的任务不能再次结束");
+    }
+
+    /**
+     * 测试尝试次数用尽的过期任务不再被领取，而是标记为失败
+     */
+    @Test
+    public void testExpiredTaskAtMaxAttemptsFailed() throws Exception {
+        long now = 1_000_000;
+        assertEquals(1, claim("instance-a", "token-a", now, 1, 1));
+
+        long expired = now + LEASE_MS + 1;
+        assertEquals(2, claim("instance-b", "token-b", expired, 1, 10), "只领取另外两个待处理任务");
+        assertEquals(1, countByToken("token-a"));
+
+        assertEquals(1, update("failExpiredTasks", expired, 1, expired));
+        assertEquals("FAILED", queryString("SELECT status FROM analysis_task WHERE id = 1"));
+        assertEquals("Lease expired", queryString("SELECT last_error FROM analysis_task WHERE id = 1"));
+    }
+
+    /**
+     * 测试暂停撤销运行中任务领取时计入的尝试次数，恢复后重新领取不消耗重试次数
+     */
+    @Test
+    public void testPauseRefundsAttempt() throws Exception {
+        long now = 1_000_000;
+        claim("instance-a", "token-a", now, 3, 1);
+        assertEquals(1, queryLong("SELECT attempts FROM analysis_task WHERE id = 1"));
+
+        assertEquals(3, update("pauseTasks", 1L, now));
+        assertEquals(0, queryLong("SELECT attempts FROM analysis_task WHERE id = 1"));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM analysis_task WHERE status <> 'PAUSED'"));
+    }
+
+    private int claim(String owner, String token, long nowMillis, int maxAttempts, int limit) throws Exception {
+        return update("claimTasks", owner, token, nowMillis + LEASE_MS, nowMillis, nowMillis, maxAttempts, 1L, limit);
+    }
+
+    private long countByToken(String token) throws Exception {
+        return queryLong("SELECT COUNT(*) FROM analysis_task WHERE lease_token = '" + token + "' AND status = 'RUNNING'");
+    }
+
+    /**
+     * 按方法名取出仓库中的原生SQL并执行，参数按?1、?2编号绑定
+     */
+    private int update(String methodName, Object... args) throws Exception {
+        for (Method method : AnalysisTaskRepository.class.getDeclaredMethods()) {
+            Query query = method.getAnnotation(Query.class);
+            if (method.getName().equals(methodName) && query != null) {
+                return execute(query.value(), args);
+            }
+        }
+        throw new IllegalArgumentException("No native query: " + methodName);
+    }
+
+    private int execute(String sql, Object... args) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement.executeUpdate();
+        }
+    }
+
+    private long queryLong(String sql) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private String queryString(String sql) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.trae.loganalysis.service;
+
+import com.trae.loganalysis.entity.AnalysisTask;
+import com.trae.loganalysis.util.CallAbortScope;
+import com.trae.loganalysis.util.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试分析流水线的取消和超时：取消的行以CancellationException结束且不持久化，
+ * 超时的行跳过剩余的下游调用，以超时状态持久化后正常结束
+ */
+public class AnalysisPipelineTest {
+
+    private StubAnalysisService service;
+    private AnalysisPipeline pipeline;
+    private ServerSocket silentServer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        service = new StubAnalysisService();
+        pipeline = new AnalysisPipeline(service, 1, 1, 1, 1, 1, 1, 1, 1);
+        // 接受连接但从不响应的服务端，模拟卡住的下游接口
+        silentServer = new ServerSocket(0);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        pipeline.shutdown();
+        silentServer.close();
+    }
+
+    /**
+     * 测试取消断开阻塞中的下游连接，行以CancellationException结束且不执行后续阶段
+     */
+    @Test
+    public void testCancelAbortsBlockedCall() throws Exception {
+        service.blockOnSilentServer = true;
+        RowAnalysisContext context = newContext(Deadline.none());
+        assertTrue(pipeline.trySubmit(context));
+        assertTrue(service.fetchStarted.await(5, TimeUnit.SECONDS));
+
+        context.cancel();
+
+        assertThrows(CancellationException.class, () -> context.getCompletion().get(5, TimeUnit.SECONDS));
+        assertEquals(0, service.sourceFetched.size());
+        assertTrue(service.persisted.isEmpty(), "取消的行不能持久化");
+    }
+
+    /**
+     * 测试截止时间已过的行不再发起下游调用，以超时状态持久化后正常结束
+     */
+    @Test
+    public void testExpiredDeadlinePersistsTimedOut() throws Exception {
+        RowAnalysisContext context = newContext(Deadline.at(System.currentTimeMillis() - 1));
+        assertTrue(pipeline.trySubmit(context));
+
+        context.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(1, service.fetchStarted.getCount(), "超时的行不能调用日志接口");
+        assertEquals(List.of(context), service.persisted);
+        assertTrue(context.isTimedOut());
+    }
+
+    /**
+     * 测试调度器在截止后断开下游连接，阶段异常按超时处理，跳过剩余阶段直接持久化
+     */
+    @Test
+    public void testAbortCallsAfterDeadlinePersistsTimedOut() throws Exception {
+        service.blockOnSilentServer = true;
+        RowAnalysisContext context = newContext(Deadline.after(200));
+        assertTrue(pipeline.trySubmit(context));
+        assertTrue(service.fetchStarted.await(5, TimeUnit.SECONDS));
+
+        Thread.sleep(300);
+        context.abortCalls();
+
+        context.getCompletion().get(5, TimeUnit.SECONDS);
+        assertTrue(context.isTimedOut());
+        assertEquals(0, service.sourceFetched.size());
+        assertEquals(List.of(context), service.persisted);
+    }
+
+    /**
+     * 测试第一个阶段的队列已满时提交不阻塞，返回false
+     */
+    @Test
+    public void testTrySubmitReturnsFalseWhenQueueFull() throws Exception {
+        service.blockOnSilentServer = true;
+        RowAnalysisContext running = newContext(Deadline.none());
+        RowAnalysisContext queued = newContext(Deadline.none());
+        assertTrue(pipeline.trySubmit(running));
+        assertTrue(service.fetchStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.trySubmit(queued));
+
+        assertFalse(pipeline.trySubmit(newContext(Deadline.none())));
+
+        running.cancel();
+        queued.cancel();
+        assertThrows(CancellationException.class, () -> running.getCompletion().get(5, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> queued.getCompletion().get(5, TimeUnit.SECONDS));
+    }
+
+    private RowAnalysisContext newContext(Deadline deadline) {
+        AnalysisTask task = new AnalysisTask();
+        task.setId(1L);
+        task.setFileId(1L);
+        task.setFileDataId(1L);
+        return new RowAnalysisContext(task, deadline);
+    }
+
+    /**
+     * 替换各阶段下游调用的分析服务，日志获取阶段可以阻塞在不响应的连接上
+     */
+    private class StubAnalysisService extends FileAnalysisService {
+
+        private final CountDownLatch fetchStarted = new CountDownLatch(1);
+        private final List<RowAnalysisContext> sourceFetched = new CopyOnWriteArrayList<>();
+        private final List<RowAnalysisContext> persisted = new CopyOnWriteArrayList<>();
+        private volatile boolean blockOnSilentServer = false;
+
+        private StubAnalysisService() {
+            super(null, null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        void fetchLog(RowAnalysisContext context) throws IOException {
+            fetchStarted.countDown();
+            if (!blockOnSilentServer) {
+                return;
+            }
+            HttpURLConnection connection = (HttpURLConnection)
+                    new URL("http://localhost:" + silentServer.getLocalPort() + "/log").openConnection();
+            CallAbortScope.register(connection);
+            try (InputStream in = connection.getInputStream()) {
+                in.readAllBytes();
+            } finally {
+                CallAbortScope.unregister(connection);
+            }
+        }
+
+        @Override
+        void fetchSource(RowAnalysisContext context) {
+            sourceFetched.add(context);
+        }
+
+        @Override
+        void suggest(RowAnalysisContext context) {
+        }
+
+        @Override
+        void persist(RowAnalysisContext context) {
+            persisted.add(context);
+        }
+    }
+}
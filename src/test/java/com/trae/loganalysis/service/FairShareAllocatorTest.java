@@ -0,0 +1,59 @@
+package com.trae.loganalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FairShareAllocatorTest {
+
+    /**
+     * 测试大文件占满并发时，小文件仍能分到名额
+     */
+    @Test
+    public void testSmallFileNotStarvedByLargeFile() {
+        Map<Long, Integer> allocation = FairShareAllocator.allocate(Arrays.asList(
+                new FairShareAllocator.Candidate(1L, "alice", 1, 1, 8),
+                new FairShareAllocator.Candidate(2L, "bob", 1, 1, 0)), 4);
+
+        assertEquals(4, allocation.get(2L), "空闲创建者应获得全部新名额");
+        assertNull(allocation.get(1L), "已占用大量并发的文件不应再分到名额");
+    }
+
+    /**
+     * 测试创建者之间按权重分配
+     */
+    @Test
+    public void testUserWeights() {
+        Map<Long, Integer> allocation = FairShareAllocator.allocate(Arrays.asList(
+                new FairShareAllocator.Candidate(1L, "alice", 3, 1, 0),
+                new FairShareAllocator.Candidate(2L, "bob", 1, 1, 0)), 8);
+
+        assertEquals(6, allocation.get(1L), "权重为3的创建者应分到3/4的名额");
+        assertEquals(2, allocation.get(2L), "权重为1的创建者应分到1/4的名额");
+    }
+
+    /**
+     * 测试同一创建者的文件之间按优先级权重分配
+     */
+    @Test
+    public void testFileWeightsWithinUser() {
+        Map<Long, Integer> allocation = FairShareAllocator.allocate(Arrays.asList(
+                new FairShareAllocator.Candidate(1L, "alice", 1, 1, 0),
+                new FairShareAllocator.Candidate(2L, "alice", 1, 2, 0)), 6);
+
+        assertEquals(2, allocation.get(1L));
+        assertEquals(4, allocation.get(2L), "优先级更高的文件应分到更多名额");
+    }
+
+    /**
+     * 测试没有候选文件时返回空分配
+     */
+    @Test
+    public void testEmptyCandidates() {
+        assertTrue(FairShareAllocator.allocate(Collections.emptyList(), 5).isEmpty());
+    }
+}
@@ -1,10 +1,23 @@
 package com.trae.loganalysis.service;
 
+import com.trae.loganalysis.entity.UploadFile;
+import com.trae.loganalysis.repository.AnalysisTaskRepository;
+import com.trae.loganalysis.repository.FileDataRepository;
+import com.trae.loganalysis.repository.UploadFileRepository;
+import com.trae.loganalysis.util.JavaMethodIndex;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 public class FileAnalysisServiceTest {
 
@@ -81,15 +94,10 @@ public class FileAnalysisServiceTest {
         String methodName = "sendCore";
 
         // 创建FileAnalysisService实例
-        FileAnalysisService service = new FileAnalysisService(null, null, null, null, 1);
-
-        // 使用反射调用私有方法
-        Method extractMethodCodeMethod = FileAnalysisService.class.getDeclaredMethod("extractMethodCode", 
-                String.class, String.class, Integer.class, String.class);
-        extractMethodCodeMethod.setAccessible(true);
+        FileAnalysisService service = new FileAnalysisService(null, null, null, null, null, null, null, null, null, null);
 
         // 调用方法
-        String extractedCode = (String) extractMethodCodeMethod.invoke(service, 
+        String extractedCode = extractMethodCode(service, 
                 fullSourceCode, className, lineNum, methodName);
 
         // 验证结果
@@ -123,23 +131,18 @@ public class FileAnalysisServiceTest {
     @Test
     public void testExtractMethodCodeWithEmptyInput() throws Exception {
         // 创建FileAnalysisService实例
-        FileAnalysisService service = new FileAnalysisService(null, null, null, null, 1);
-
-        // 使用反射调用私有方法
-        Method extractMethodCodeMethod = FileAnalysisService.class.getDeclaredMethod("extractMethodCode", 
-                String.class, String.class, Integer.class, String.class);
-        extractMethodCodeMethod.setAccessible(true);
+        FileAnalysisService service = new FileAnalysisService(null, null, null, null, null, null, null, null, null, null);
 
         // 测试空源码
-        String result1 = (String) extractMethodCodeMethod.invoke(service, "", "TestClass", 1, "testMethod");
+        String result1 = extractMethodCode(service, "", "TestClass", 1, "testMethod");
         assertEquals("", result1, "空源码应返回空字符串");
 
         // 测试null源码
-        String result2 = (String) extractMethodCodeMethod.invoke(service, null, "TestClass", 1, "testMethod");
+        String result2 = extractMethodCode(service, null, "TestClass", 1, "testMethod");
         assertNull(result2, "null源码应返回null");
 
         // 测试空方法名
-        String result3 = (String) extractMethodCodeMethod.invoke(service, "public class Test {}", "TestClass", 1, "");
+        String result3 = extractMethodCode(service, "public class Test {}", "TestClass", 1, "");
         assertEquals("public class Test {}", result3, "空方法名应返回原始源码");
     }
 
@@ -156,15 +159,10 @@ public class FileAnalysisServiceTest {
                 "}";
 
         // 创建FileAnalysisService实例
-        FileAnalysisService service = new FileAnalysisService(null, null, null, null, 1);
-
-        // 使用反射调用私有方法
-        Method extractMethodCodeMethod = FileAnalysisService.class.getDeclaredMethod("extractMethodCode", 
-                String.class, String.class, Integer.class, String.class);
-        extractMethodCodeMethod.setAccessible(true);
+        FileAnalysisService service = new FileAnalysisService(null, null, null, null, null, null, null, null, null, null);
 
         // 调用方法，传入不存在的方法名
-        String extractedCode = (String) extractMethodCodeMethod.invoke(service, 
+        String extractedCode = extractMethodCode(service, 
                 fullSourceCode, "TestClass", 1, "nonExistentMethod");
 
         // 验证结果：未找到方法时应返回原始源码
@@ -188,15 +186,10 @@ public class FileAnalysisServiceTest {
                 "}";
 
         // 创建FileAnalysisService实例
-        FileAnalysisService service = new FileAnalysisService(null, null, null, null, 1);
-
-        // 使用反射调用私有方法
-        Method extractMethodCodeMethod = FileAnalysisService.class.getDeclaredMethod("extractMethodCode", 
-                String.class, String.class, Integer.class, String.class);
-        extractMethodCodeMethod.setAccessible(true);
+        FileAnalysisService service = new FileAnalysisService(null, null, null, null, null, null, null, null, null, null);
 
         // 调用方法
-        String extractedCode = (String) extractMethodCodeMethod.invoke(service, 
+        String extractedCode = extractMethodCode(service, 
                 fullSourceCode, "TestClass", 1, "testMethod");
 
         // 验证结果
@@ -214,4 +207,69 @@ public class FileAnalysisServiceTest {
         System.out.println(extractedCode);
         System.out.println("=== 抽取结束 ===");
     }
-}
\ No newline at end of file
+
+    /**
+     * 测试parseEventTime只把有效范围内的数字当作Excel日期序列值，毫秒时间戳等视为无法解析
+     */
+    @Test
+    public void testParseEventTimeRejectsImplausibleSerial() throws Exception {
+        FileAnalysisService service = new FileAnalysisService(null, null, null, null, null, null, null, null, null, null);
+        Field pattern = FileAnalysisService.class.getDeclaredField("logWindowTimePattern");
+        pattern.setAccessible(true);
+        pattern.set(service, "yyyy-MM-dd HH:mm:ss");
+        service.initEventTimeFormatter();
+
+        assertEquals(LocalDateTime.of(2024, 3, 14, 10, 9, 0), service.parseEventTime("2024-03-14 10:09:00"));
+        assertEquals(LocalDateTime.of(2024, 3, 14, 12, 0, 0), service.parseEventTime("45365.5"));
+        assertNull(service.parseEventTime("1710382140000"), "毫秒时间戳不是Excel日期序列值");
+        assertNull(service.parseEventTime("0"));
+        assertNull(service.parseEventTime("-1"));
+        assertNull(service.parseEventTime("not a time"));
+    }
+
+    /**
+     * 测试同一文件被两次启动分析时，状态已被第一次启动切换为准备中，第二次启动被拒绝且不创建任务
+     */
+    @Test
+    public void testSecondStartRejected() {
+        UploadFileRepository uploadFileRepository = mock(UploadFileRepository.class);
+        FileDataRepository fileDataRepository = mock(FileDataRepository.class);
+        AnalysisTaskRepository analysisTaskRepository = mock(AnalysisTaskRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        // 两次启动读取到的都是待分析状态，只有第一次的条件更新成功
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setId(1L);
+        uploadFile.setStatus("UPLOADED");
+        when(uploadFileRepository.findById(1L)).thenReturn(Optional.of(uploadFile));
+        when(uploadFileRepository.updateStatusIfCurrent(1L, "UPLOADED", "PREPARING")).thenReturn(1, 0);
+        when(fileDataRepository.findRowViewsAfterId(anyLong(), anyLong(), anyInt())).thenReturn(Collections.emptyList());
+
+        FileAnalysisService service = new FileAnalysisService(uploadFileRepository, fileDataRepository, null,
+                analysisTaskRepository, null, transactionTemplate, null, null, null, null);
+        service.analyzeFile(1L, null);
+        assertThrows(IllegalStateException.class, () -> service.analyzeFile(1L, null));
+
+        verify(uploadFileRepository, times(1)).initPreparing(eq(1L), anyInt(), any(), anyLong());
+        verify(fileDataRepository, times(1)).findRowViewsAfterId(anyLong(), anyLong(), anyInt());
+        verify(uploadFileRepository, never()).save(any());
+    }
+
+    /**
+     * 使用反射调用私有方法：与fetchSource一致，先查找方法声明，再据此抽取方法源码
+     */
+    private static String extractMethodCode(FileAnalysisService service, String fullSourceCode,
+                                            String className, Integer lineNum, String methodName) throws Exception {
+        Method findMethod = FileAnalysisService.class.getDeclaredMethod("findMethod",
+                String.class, String.class, Integer.class, String.class);
+        findMethod.setAccessible(true);
+        Object method = findMethod.invoke(service, fullSourceCode, className, lineNum, methodName);
+
+        Method extractMethodCodeMethod = FileAnalysisService.class.getDeclaredMethod("extractMethodCode",
+                String.class, JavaMethodIndex.MethodDeclaration.class, String.class, Integer.class, String.class);
+        extractMethodCodeMethod.setAccessible(true);
+        return (String) extractMethodCodeMethod.invoke(service, fullSourceCode, method, className, lineNum, methodName);
+    }
+}
@@ -0,0 +1,29 @@
+package com.trae.loganalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultExportServiceTest {
+
+    /**
+     * 测试只有最大ID或最后写入时间更小的版本才视为更旧
+     */
+    @Test
+    public void testOlderVersion() {
+        assertTrue(ResultExportService.isOlderVersion("10-100-5000", "11-101-4000"));
+        assertTrue(ResultExportService.isOlderVersion("10-100-5000", "10-100-6000"));
+        assertFalse(ResultExportService.isOlderVersion("11-101-4000", "10-100-5000"), "更新的版本不应被删除");
+        assertFalse(ResultExportService.isOlderVersion("10-100-5000", "10-100-5000"));
+        assertFalse(ResultExportService.isOlderVersion("9-100-5000", "10-100-5000"), "最大ID和写入时间相同时不视为更旧");
+    }
+
+    /**
+     * 测试无法解析的文件名版本不视为更旧
+     */
+    @Test
+    public void testUnparseableVersion() {
+        assertFalse(ResultExportService.isOlderVersion("3f2a9c1e-7b4d-4e8a-9f00-1a2b3c4d5e6f", "10-100-5000"));
+        assertFalse(ResultExportService.isOlderVersion("10-100", "10-100-5000"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.trae.loganalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StratifiedSamplerTest {
+
+    private static Map<String, Long> strata(long... sizes) {
+        Map<String, Long> strata = new LinkedHashMap<>();
+        for (int i = 0; i < sizes.length; i++) {
+            strata.put("s" + i, sizes[i]);
+        }
+        return strata;
+    }
+
+    private static long sum(Map<String, Long> quotas) {
+        return quotas.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * 测试少见的错误签名也至少抽到一行，剩余名额按比例分配
+     */
+    @Test
+    public void testRareStrataAreCovered() {
+        Map<String, Long> quotas = StratifiedSampler.allocate(strata(9000, 900, 99, 1), 100);
+
+        assertEquals(100L, sum(quotas));
+        assertEquals(1L, quotas.get("s3"), "只有一行的分层也应被抽到");
+        assertTrue(quotas.get("s2") >= 1);
+        assertTrue(quotas.get("s0") > quotas.get("s1"), "行数多的分层应分到更多名额");
+    }
+
+    /**
+     * 测试样本数小于分层数时优先覆盖行数最多的分层
+     */
+    @Test
+    public void testLargestStrataFirstWhenSampleIsSmall() {
+        Map<String, Long> quotas = StratifiedSampler.allocate(strata(5, 50, 20, 1), 2);
+
+        assertEquals(1L, quotas.get("s1"));
+        assertEquals(1L, quotas.get("s2"));
+        assertEquals(0L, quotas.get("s0"));
+        assertEquals(0L, quotas.get("s3"));
+    }
+
+    /**
+     * 测试配额不超过分层行数，总数等于样本数
+     */
+    @Test
+    public void testQuotaNeverExceedsStratumSize() {
+        Map<String, Long> strata = strata(3, 7, 2, 11, 1, 1);
+        for (long sampleSize = 1; sampleSize <= 25; sampleSize++) {
+            Map<String, Long> quotas = StratifiedSampler.allocate(strata, sampleSize);
+            assertEquals(sampleSize, sum(quotas));
+            for (Map.Entry<String, Long> entry : strata.entrySet()) {
+                assertTrue(quotas.get(entry.getKey()) <= entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 测试样本数不小于总行数时全部抽取
+     */
+    @Test
+    public void testSampleCoversAllRows() {
+        Map<String, Long> strata = strata(4, 6);
+        assertEquals(strata, StratifiedSampler.allocate(strata, 10));
+        assertEquals(strata, StratifiedSampler.allocate(strata, 100));
+    }
+}
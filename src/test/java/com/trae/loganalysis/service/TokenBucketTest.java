@@ -0,0 +1,50 @@
+package com.trae.loganalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    /**
+     * 测试突发不超过一秒的令牌数，之后按速率补充
+     */
+    @Test
+    public void testRefillAtRate() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(10, clock::get);
+
+        assertEquals(10, bucket.tryAcquire(50), "初始可突发一秒的令牌数");
+        assertEquals(0, bucket.tryAcquire(5));
+
+        clock.addAndGet(500_000_000L);
+        assertEquals(5, bucket.tryAcquire(50), "半秒后补充一半的令牌");
+
+        clock.addAndGet(10_000_000_000L);
+        assertEquals(10, bucket.tryAcquire(50), "令牌数不超过桶容量");
+    }
+
+    /**
+     * 测试归还未使用的令牌
+     */
+    @Test
+    public void testRelease() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(4, clock::get);
+
+        assertEquals(4, bucket.tryAcquire(4));
+        bucket.release(3);
+        assertEquals(3, bucket.tryAcquire(10));
+    }
+
+    /**
+     * 测试速率不大于0时不限速
+     */
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(0);
+        assertEquals(1000, bucket.tryAcquire(1000));
+    }
+}
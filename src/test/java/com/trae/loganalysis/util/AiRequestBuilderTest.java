@@ -0,0 +1,66 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiRequestBuilderTest {
+
+    /**
+     * 测试未超出预算时完整保留日志和源码，并标记报错行
+     */
+    @Test
+    public void testWithinBudget() {
+        String context = new AiRequestBuilder(1000)
+                .logMessage("NullPointerException at Demo.send:11")
+                .methodCode("void send() {\n    int a = 1;\n    call(a);\n}", 9)
+                .errorLine(11)
+                .build();
+
+        assertTrue(context.contains("NullPointerException at Demo.send:11"));
+        assertTrue(context.contains("call(a);    // <-- 报错行"));
+        assertTrue(context.contains("int a = 1;"));
+    }
+
+    /**
+     * 测试超出预算时保留方法签名和报错行附近的源码
+     */
+    @Test
+    public void testTrimsAroundErrorLine() {
+        StringBuilder code = new StringBuilder("public void process(List<Order> orders) {\n");
+        for (int i = 1; i <= 200; i++) {
+            code.append("    step").append(i).append("(orders);\n");
+        }
+        code.append("}");
+
+        String context = new AiRequestBuilder(600)
+                .logMessage("java.lang.IllegalStateException: boom")
+                .methodCode(code.toString(), 100)
+                .errorLine(200)
+                .build();
+
+        assertTrue(context.length() <= 600, "上下文不应超出预算");
+        assertTrue(context.contains("public void process(List<Order> orders) {"), "应保留方法签名");
+        assertTrue(context.contains("step100(orders);    // <-- 报错行"), "应保留并标记报错行");
+        assertTrue(context.contains("step99(orders);") && context.contains("step101(orders);"), "应保留报错行上下文");
+        assertFalse(context.contains("step1(orders);"), "远离报错行的源码应被裁剪");
+    }
+
+    /**
+     * 测试日志超出预算时保留首行和Caused by行
+     */
+    @Test
+    public void testTrimsLog() {
+        StringBuilder log = new StringBuilder("java.lang.RuntimeException: outer\n");
+        for (int i = 0; i < 100; i++) {
+            log.append("\tat com.demo.Frame").append(i).append(".run(Frame.java:").append(i).append(")\n");
+        }
+        log.append("Caused by: java.io.IOException: inner");
+
+        String context = new AiRequestBuilder(1000).logMessage(log.toString()).build();
+
+        assertTrue(context.length() <= 1000);
+        assertTrue(context.contains("java.lang.RuntimeException: outer"));
+        assertTrue(context.contains("Caused by: java.io.IOException: inner"));
+    }
+}
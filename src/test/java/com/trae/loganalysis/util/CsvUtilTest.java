@@ -0,0 +1,33 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvUtilTest {
+
+    private final CsvUtil csvUtil = new CsvUtil();
+
+    /**
+     * 测试包含逗号、引号和换行的字段被引号包围，引号写两次
+     */
+    @Test
+    public void testQuoting() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<List<String>> rows = Collections.singletonList(
+                Arrays.asList("plain", "a,b", "say \"hi\"", "line1\nline2", null, "中文"));
+
+        long count = csvUtil.writeCsv(out, Arrays.asList("h1", "h2", "h3", "h4", "h5", "h6"), rows.iterator());
+
+        assertEquals(1L, count);
+        assertEquals("h1,h2,h3,h4,h5,h6\r\nplain,\"a,b\",\"say \"\"hi\"\"\",\"line1\nline2\",,中文\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,56 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadlineTest {
+
+    /**
+     * 测试下游调用的超时不超过剩余时间
+     */
+    @Test
+    public void testTimeoutCappedByRemainingTime() {
+        Deadline deadline = Deadline.after(1000);
+
+        int timeout = deadline.timeoutMillis(60000);
+        assertTrue(timeout > 0 && timeout <= 1000, "超时应不超过剩余时间");
+        assertEquals(500, deadline.timeoutMillis(500), "剩余时间充足时使用配置的超时");
+    }
+
+    /**
+     * 测试取较早的截止时间
+     */
+    @Test
+    public void testMin() {
+        Deadline row = Deadline.after(60000);
+        Deadline file = Deadline.at(System.currentTimeMillis() + 1000);
+
+        assertSame(file, row.min(file));
+        assertSame(file, file.min(row));
+        assertSame(row, row.min(Deadline.none()));
+    }
+
+    /**
+     * 测试已截止时抛出异常
+     */
+    @Test
+    public void testExpired() {
+        Deadline deadline = Deadline.at(System.currentTimeMillis() - 1);
+
+        assertTrue(deadline.isExpired());
+        assertThrows(DeadlineExceededException.class, () -> deadline.timeoutMillis(5000));
+        assertThrows(DeadlineExceededException.class, deadline::check);
+    }
+
+    /**
+     * 测试没有截止时间时永不截止
+     */
+    @Test
+    public void testNone() {
+        assertFalse(Deadline.none().isExpired());
+        assertFalse(Deadline.after(0).isExpired());
+        assertFalse(Deadline.at(null).isExpired());
+        assertEquals(5000, Deadline.none().timeoutMillis(5000));
+    }
+}
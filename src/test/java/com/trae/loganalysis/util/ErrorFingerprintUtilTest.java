@@ -0,0 +1,40 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ErrorFingerprintUtilTest {
+
+    private final ErrorFingerprintUtil util = new ErrorFingerprintUtil();
+
+    /**
+     * 测试仅数字、ID和时间戳不同的错误归为同一类
+     */
+    @Test
+    public void testVolatilePartsIgnored() {
+        String a = "2024-05-01 10:00:01.123 订单 12345 处理失败, traceId=3f2a9c1e-7b4d-4e8a-9f00-1a2b3c4d5e6f";
+        String b = "2024-06-12 23:59:59.999 订单 987 处理失败, traceId=0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+
+        assertEquals(util.normalize(a), util.normalize(b));
+        assertEquals(util.fingerprint(a), util.fingerprint(b));
+    }
+
+    /**
+     * 测试不同的错误得到不同的签名
+     */
+    @Test
+    public void testDifferentErrorsDiffer() {
+        assertNotEquals(util.fingerprint("订单 1 处理失败"), util.fingerprint("库存 1 扣减失败"));
+    }
+
+    /**
+     * 测试空输入
+     */
+    @Test
+    public void testEmptyInput() {
+        assertEquals("", util.normalize(null));
+        assertEquals(util.fingerprint(null), util.fingerprint(""));
+        assertEquals(16, util.fingerprint(null).length());
+    }
+}
@@ -0,0 +1,36 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExportCodeFormatterTest {
+
+    /**
+     * 测试从JSON数组中提取包含方法签名的源码行
+     */
+    @Test
+    public void testExtractMethodLines() {
+        String code = "[\"com.demo.A.run line1\", \"other\", \"com.demo.A.run line2\"]";
+
+        assertEquals("com.demo.A.run line1\ncom.demo.A.run line2",
+                ExportCodeFormatter.format(code, "com.demo.A", 10, "run"));
+        assertEquals("com.demo.A.run line1\nother\ncom.demo.A.run line2",
+                ExportCodeFormatter.format(code, "com.demo.A", 10, "stop"));
+        assertEquals("com.demo.A.run line1\nother\ncom.demo.A.run line2",
+                ExportCodeFormatter.format(code, null, null, null));
+    }
+
+    /**
+     * 测试普通文本原样返回，过长内容被截断到单元格长度限制内
+     */
+    @Test
+    public void testPlainTextAndTruncation() {
+        assertEquals("", ExportCodeFormatter.format(null, "A", 1, "run"));
+        assertEquals("public void run() {}", ExportCodeFormatter.format("public void run() {}", "A", 1, "run"));
+
+        String formatted = ExportCodeFormatter.format("x".repeat(40000), "A", 1, "run");
+        assertEquals(32767, formatted.length());
+        assertTrue(formatted.endsWith("...(已截断，内容过长)"));
+    }
+}
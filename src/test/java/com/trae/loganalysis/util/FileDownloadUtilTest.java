@@ -0,0 +1,43 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDownloadUtilTest {
+
+    /**
+     * 测试三种单范围写法
+     */
+    @Test
+    public void testSingleRange() {
+        assertArrayEquals(new long[]{0, 99}, FileDownloadUtil.parseRange("bytes=0-99", 1000));
+        assertArrayEquals(new long[]{500, 999}, FileDownloadUtil.parseRange("bytes=500-", 1000));
+        assertArrayEquals(new long[]{900, 999}, FileDownloadUtil.parseRange("bytes=-100", 1000));
+        assertArrayEquals(new long[]{900, 999}, FileDownloadUtil.parseRange("bytes=900-5000", 1000));
+        assertArrayEquals(new long[]{0, 999}, FileDownloadUtil.parseRange("bytes=-5000", 1000));
+    }
+
+    /**
+     * 测试起始位置超出文件长度时不可满足
+     */
+    @Test
+    public void testUnsatisfiableRange() {
+        assertSame(FileDownloadUtil.UNSATISFIABLE, FileDownloadUtil.parseRange("bytes=1000-", 1000));
+        assertSame(FileDownloadUtil.UNSATISFIABLE, FileDownloadUtil.parseRange("bytes=-0", 1000));
+        assertSame(FileDownloadUtil.UNSATISFIABLE, FileDownloadUtil.parseRange("bytes=0-", 0));
+    }
+
+    /**
+     * 测试格式不正确或多个范围时忽略Range，返回完整文件
+     */
+    @Test
+    public void testIgnoredRange() {
+        assertNull(FileDownloadUtil.parseRange("items=0-1", 1000));
+        assertNull(FileDownloadUtil.parseRange("bytes=0-1,5-6", 1000));
+        assertNull(FileDownloadUtil.parseRange("bytes=10-5", 1000));
+        assertNull(FileDownloadUtil.parseRange("bytes=-", 1000));
+        assertNull(FileDownloadUtil.parseRange("bytes=a-5", 1000));
+        assertNull(FileDownloadUtil.parseRange("bytes=--5", 1000));
+    }
+}
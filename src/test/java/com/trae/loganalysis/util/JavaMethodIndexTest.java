@@ -0,0 +1,102 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JavaMethodIndexTest {
+
+    private static final String SOURCE = "public class Demo {\n" +            // 1
+            "    private static final char OPEN = '{';\n" +                       // 2
+            "    /* void ghost() { */\n" +                                        // 3
+            "    public String send(String a) {\n" +                              // 4
+            "        String s = \"}\\\"{\";\n" +                                  // 5
+            "        return a + s;\n" +                                           // 6
+            "    }\n" +                                                           // 7
+            "    @Override\n" +                                                   // 8
+            "    public String send(String a, int b) throws IOException {\n" +    // 9
+            "        String block = \"\"\"\n" +                                   // 10
+            "            }}}\n" +                                                 // 11
+            "            \"\"\";\n" +                                             // 12
+            "        Runnable r = new Runnable() {\n" +                           // 13
+            "            public void run() {\n" +                                 // 14
+            "                send(block);\n" +                                    // 15
+            "            }\n" +                                                   // 16
+            "        };\n" +                                                      // 17
+            "        return block;\n" +                                           // 18
+            "    }\n" +                                                           // 19
+            "}\n";
+
+    /**
+     * 测试注释、字符字面量、转义引号和文本块中的大括号不影响方法边界
+     */
+    @Test
+    public void testMethodBoundaries() {
+        JavaMethodIndex index = JavaMethodIndex.build(SOURCE);
+
+        assertEquals(3, index.getMethods().size(), "应识别两个send重载和匿名类中的run");
+        JavaMethodIndex.MethodDeclaration first = index.getMethods().get(0);
+        assertEquals("send", first.getName());
+        assertEquals("String a", first.getParameters());
+        assertEquals(4, first.getStartLine());
+        assertEquals(7, first.getEndLine());
+        assertTrue(SOURCE.substring(first.getStartOffset(), first.getEndOffset()).endsWith("return a + s;\n    }"));
+    }
+
+    /**
+     * 测试按行号区分同名重载，并找到最内层方法
+     */
+    @Test
+    public void testFindByLine() {
+        JavaMethodIndex index = JavaMethodIndex.build(SOURCE);
+
+        assertEquals("String a", index.find("send", 6).getParameters());
+        assertEquals("String a, int b", index.find("send", 11).getParameters());
+        assertEquals("run", index.findByLine(15).getName());
+        assertEquals("String a, int b", index.find("send", 15).getParameters(), "内层方法不同名时取外层同名方法");
+        assertNull(index.findByLine(2));
+    }
+
+    /**
+     * 测试行号不在任何方法内时按名称取最接近的重载
+     */
+    @Test
+    public void testFindByNameFallback() {
+        JavaMethodIndex index = JavaMethodIndex.build(SOURCE);
+
+        assertEquals("String a, int b", index.find("send", 30).getParameters());
+        assertEquals("String a", index.find("send", null).getParameters());
+        assertNull(index.find("missing", 6));
+    }
+
+    /**
+     * 测试字段初始化中的匿名类和方法调用不被识别为方法，匿名类中的方法和前后方法的行号范围不受影响
+     */
+    @Test
+    public void testFieldInitializerNotMethod() {
+        String source = "public class Demo {\n" +                                  // 1
+                "    @Mapping(value = \"/a\")\n" +                              // 2
+                "    public void before() {\n" +                                  // 3
+                "    }\n" +                                                       // 4
+                "    private final Runnable r = new Runnable() {\n" +             // 5
+                "        public void run() {\n" +                                 // 6
+                "        }\n" +                                                   // 7
+                "    };\n" +                                                      // 8
+                "    private final Object o = create(new Object() {\n" +          // 9
+                "    });\n" +                                                     // 10
+                "    public void after() {\n" +                                   // 11
+                "    }\n" +                                                       // 12
+                "}\n";
+
+        JavaMethodIndex index = JavaMethodIndex.build(source);
+
+        assertEquals(3, index.getMethods().size(), "应识别before、匿名类中的run和after");
+        assertNull(index.find("Runnable", 5));
+        assertNull(index.find("create", 9));
+        assertEquals(2, index.find("before", 3).getStartLine(), "声明从注解开始");
+        assertEquals("run", index.findByLine(6).getName());
+        assertNull(index.findByLine(9));
+        assertEquals(11, index.find("after", 11).getStartLine());
+        assertEquals(12, index.find("after", 11).getEndLine());
+    }
+}
@@ -0,0 +1,139 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试下游JSON接口调用在读到所需字段或超出读取上限后立即返回，不再读取剩余响应体
+ */
+public class JsonApiClientTest {
+
+    private static final String RESPONSE_HEADERS = "HTTP/1.1 200 OK\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Content-Length: 1000000000\r\n\r\n";
+
+    private ServerSocket server;
+    private Thread serverThread;
+    private final CountDownLatch released = new CountDownLatch(1);
+    private JsonApiClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new ServerSocket(0);
+        client = new JsonApiClient();
+        setField("responseMaxBytes", 64 * 1024L);
+        setField("connectTimeoutMs", 5000);
+        // 读取超时远大于断言的耗时，读取剩余响应体会导致测试超时失败
+        setField("readTimeoutMs", 30000);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        released.countDown();
+        server.close();
+        if (serverThread != null) {
+            serverThread.join(5000);
+        }
+    }
+
+    /**
+     * 测试读到所需字段后立即返回：服务端发送字段后停顿，声明的响应体远未发送完
+     */
+    @Test
+    public void testReturnsWithoutReadingRestOfSlowBody() throws Exception {
+        serve(out -> {
+            out.write("{\"retCode\":\"0000\",\"entity\":{\"values\":[".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            released.await(30, TimeUnit.SECONDS);
+        });
+
+        long start = System.currentTimeMillis();
+        Map<String, String> fields = client.postForFields(url(), "{}", Deadline.none(), "retCode");
+
+        assertEquals("0000", fields.get("retCode"));
+        assertTrue(System.currentTimeMillis() - start < 5000, "不能等待剩余响应体");
+    }
+
+    /**
+     * 测试超出读取上限时立即失败：服务端持续发送不包含所需字段的大响应体
+     */
+    @Test
+    public void testStopsAtSizeCapOnLargeBody() throws Exception {
+        serve(out -> {
+            out.write("{\"padding\":\"".getBytes(StandardCharsets.UTF_8));
+            byte[] chunk = new byte[8192];
+            Arrays.fill(chunk, (byte) 'x');
+            // 客户端断开后写入失败，服务端线程结束
+            while (released.getCount() > 0) {
+                out.write(chunk);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        IOException e = assertThrows(IOException.class,
+                () -> client.postForFields(url(), "{}", Deadline.none(), "retCode"));
+
+        assertTrue(e.getMessage().contains("exceeds"), e.getMessage());
+        assertTrue(System.currentTimeMillis() - start < 5000, "不能继续读取超出上限的响应体");
+    }
+
+    /**
+     * 响应体写出逻辑
+     */
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(OutputStream out) throws Exception;
+    }
+
+    /**
+     * 接受一个连接，读取请求头后发送响应头，再由bodyWriter写出响应体
+     */
+    private void serve(BodyWriter bodyWriter) {
+        serverThread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                InputStream in = socket.getInputStream();
+                int matched = 0;
+                byte[] end = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+                while (matched < end.length) {
+                    int b = in.read();
+                    if (b < 0) {
+                        return;
+                    }
+                    matched = b == end[matched] ? matched + 1 : (b == end[0] ? 1 : 0);
+                }
+                OutputStream out = socket.getOutputStream();
+                out.write(RESPONSE_HEADERS.getBytes(StandardCharsets.US_ASCII));
+                bodyWriter.write(out);
+            } catch (Exception e) {
+                // 客户端断开连接
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getLocalPort() + "/api";
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = JsonApiClient.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(client, value);
+    }
+}
@@ -0,0 +1,55 @@
+package com.trae.loganalysis.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonStreamExtractorTest {
+
+    /**
+     * 测试读取嵌套路径上的字段，并在读到所需字段后停止（响应尾部不完整也不影响）
+     */
+    @Test
+    public void testExtractStopsEarly() throws IOException {
+        String json = "{\"entity\":{\"values\":[{\"source\":{\"x\":[1,{\"y\":\"}\"}],\"@message\":\"err \\\"q\\\"\\n\"}}," +
+                "{\"source\":{\"@message\":\"second\"}}]},\"retCode\":\"0000\",\"tail\":[";
+
+        Map<String, String> fields = JsonStreamExtractor.extract(new StringReader(json),
+                "retCode", "entity.values[0].source.@message");
+
+        assertEquals("0000", fields.get("retCode"));
+        assertEquals("err \"q\"\n", fields.get("entity.values[0].source.@message"));
+    }
+
+    /**
+     * 测试数字字段返回原文，null和缺失字段不包含在结果中
+     */
+    @Test
+    public void testLiteralsAndMissingFields() throws IOException {
+        String json = "{ \"entity\": {\"data\": [ {\"lineNum\": 150, \"methodName\": null} ] } }";
+
+        Map<String, String> fields = JsonStreamExtractor.extract(new StringReader(json),
+                "entity.data[0].lineNum", "entity.data[0].methodName", "entity.data[0].className");
+
+        assertEquals("150", fields.get("entity.data[0].lineNum"));
+        assertFalse(fields.containsKey("entity.data[0].methodName"));
+        assertFalse(fields.containsKey("entity.data[0].className"));
+    }
+
+    /**
+     * 测试响应超过大小上限时抛出异常
+     */
+    @Test
+    public void testResponseSizeCap() {
+        byte[] body = "{\"retCode\":\"0000\",\"entity\":{}}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> JsonStreamExtractor.extract(new ByteArrayInputStream(body), 10, "entity.data"));
+        assertDoesNotThrow(() -> JsonStreamExtractor.extract(new ByteArrayInputStream(body), body.length, "entity.data"));
+    }
+}
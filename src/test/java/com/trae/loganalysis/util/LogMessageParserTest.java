@@ -0,0 +1,41 @@
+package com.trae.loganalysis.util;
+
+import com.trae.loganalysis.model.LogLocation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogMessageParserTest {
+
+    /**
+     * 测试从标准格式日志中解析类名、方法名和行号
+     */
+    @Test
+    public void testParseLocation() {
+        LogLocation location = LogMessageParser.parseLocation(
+                "[2024-05-01 10:00:01][ERROR][xxx-xxx][][][org.spring.config.UpdateCommon.update:98][Thread][td][sd] error");
+
+        assertNotNull(location);
+        assertEquals("org.spring.config.UpdateCommon", location.getClassName());
+        assertEquals("update", location.getMethodName());
+        assertEquals(98, location.getLineNumber());
+    }
+
+    /**
+     * 测试跳过不符合格式的方括号片段
+     */
+    @Test
+    public void testSkipsNonMatchingBrackets() {
+        assertEquals("send", LogMessageParser.parseMethodName("[a:b][x.y:][[cn.Core.send:7]"));
+        assertEquals("", LogMessageParser.parseMethodName("[2024-05-01 10:00:01][ERROR] no location"));
+    }
+
+    /**
+     * 测试空输入
+     */
+    @Test
+    public void testEmptyInput() {
+        assertNull(LogMessageParser.parseLocation(null));
+        assertEquals("", LogMessageParser.parseMethodName(""));
+    }
+}